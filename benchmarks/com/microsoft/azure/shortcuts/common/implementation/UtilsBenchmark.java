@@ -0,0 +1,71 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures adding a virtual network site to a classic network configuration, as done when creating a classic network
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+	@Param({"1", "50"})
+	int existingSites;
+	
+	String networkConfig;
+	final String networkSite = "<VirtualNetworkSite name=\"newnet\" Location=\"West US\">"
+		+ "<AddressSpace><AddressPrefix>10.1.0.0/16</AddressPrefix></AddressSpace>"
+		+ "<Subnets><Subnet name=\"subnet1\"><AddressPrefix>10.1.0.0/24</AddressPrefix></Subnet></Subnets>"
+		+ "</VirtualNetworkSite>";
+	final String parentXPath = "/*[local-name()='NetworkConfiguration']"
+		+ "/*[local-name()='VirtualNetworkConfiguration']"
+		+ "/*[local-name()='VirtualNetworkSites']";
+	
+	@Setup
+	public void setup() {
+		StringBuilder config = new StringBuilder("<NetworkConfiguration xmlns=\"http://schemas.microsoft.com/ServiceHosting/2011/07/NetworkConfiguration\">"
+			+ "<VirtualNetworkConfiguration><Dns /><VirtualNetworkSites>");
+		for(int i = 0; i < this.existingSites; i++) {
+			config.append(this.networkSite.replace("newnet", "net" + i));
+		}
+		config.append("</VirtualNetworkSites></VirtualNetworkConfiguration></NetworkConfiguration>");
+		this.networkConfig = config.toString();
+	}
+	
+	@Benchmark
+	public String insertXMLElement() {
+		return Utils.insertXMLElement(this.networkConfig, this.networkSite, this.parentXPath);
+	}
+}
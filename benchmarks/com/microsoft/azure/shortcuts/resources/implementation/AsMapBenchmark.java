@@ -0,0 +1,88 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.management.network.models.VirtualNetwork;
+import com.microsoft.azure.shortcuts.resources.Network;
+
+// Measures the wrapping of large listings by asMap(), against a collection returning an in-memory list instead of calling Azure
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsMapBenchmark {
+	@Param({"100", "10000"})
+	int size;
+	
+	NetworksImpl networks;
+	
+	// Networks collection serving a fixed list of networks
+	static class StubNetworksImpl extends NetworksImpl {
+		private final List<VirtualNetwork> nativeItems;
+		
+		StubNetworksImpl(List<VirtualNetwork> nativeItems) {
+			super(null);
+			this.nativeItems = nativeItems;
+		}
+		
+		@Override
+		protected List<VirtualNetwork> getNativeEntities(String groupName) {
+			return this.nativeItems;
+		}
+	}
+	
+	@Setup
+	public void setup() {
+		List<VirtualNetwork> nativeItems = new ArrayList<>(this.size);
+		for(int i = 0; i < this.size; i++) {
+			VirtualNetwork nativeItem = new VirtualNetwork();
+			nativeItem.setName("network" + i);
+			nativeItem.setId("/subscriptions/9657ab5d-4a4a-4fd2-ae7a-4cd9fbd030ef/resourceGroups/group" + (i % 10) 
+				+ "/providers/Microsoft.Network/virtualNetworks/network" + i);
+			nativeItem.setLocation("westus");
+			nativeItems.add(nativeItem);
+		}
+		this.networks = new StubNetworksImpl(nativeItems);
+	}
+	
+	@Benchmark
+	public Map<String, Network> asMap() throws Exception {
+		return this.networks.asMap();
+	}
+}
@@ -0,0 +1,74 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.management.resources.models.Provider;
+import com.microsoft.azure.management.resources.models.ProviderResourceType;
+
+// Measures finding the latest API version of a resource type, over a provider with as many types and versions as Microsoft.Compute
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProviderBenchmark {
+	ProviderImpl provider;
+	
+	@Setup
+	public void setup() {
+		ArrayList<ProviderResourceType> resourceTypes = new ArrayList<>();
+		for(int i = 0; i < 30; i++) {
+			ArrayList<String> apiVersions = new ArrayList<>();
+			for(int v = 0; v < 12; v++) {
+				apiVersions.add(String.format("201%d-%02d-01", v % 6, v + 1));
+			}
+			
+			ProviderResourceType resourceType = new ProviderResourceType();
+			resourceType.setName((i == 0) ? "virtualMachines" : "type" + i);
+			resourceType.setApiVersions(apiVersions);
+			resourceTypes.add(resourceType);
+		}
+		
+		Provider nativeProvider = new Provider();
+		nativeProvider.setNamespace("Microsoft.Compute");
+		nativeProvider.setResourceTypes(resourceTypes);
+		this.provider = ProviderImpl.wrap(nativeProvider, null);
+	}
+	
+	@Benchmark
+	public String latestApiVersion() throws Exception {
+		return this.provider.resourceTypes("virtualMachines").latestApiVersion();
+	}
+}
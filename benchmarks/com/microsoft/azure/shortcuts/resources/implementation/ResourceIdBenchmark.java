@@ -0,0 +1,124 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.microsoft.azure.shortcuts.resources.implementation.ResourcesImpl.RESOURCE_ID;
+
+// Measures the parsing of ARM resource IDs done by most getters and verbs, comparing the split() based parsing
+// RESOURCE_ID used to do with the ResourceId parsing it now does, and with reading from an ID parsed once as wrappers do
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceIdBenchmark {
+	String id = "/subscriptions/9657ab5d-4a4a-4fd2-ae7a-4cd9fbd030ef/resourceGroups/mygroup/providers/Microsoft.Compute/virtualMachines/myvm";
+	ResourceId parsedId = ResourceId.parse(this.id);
+	
+	// The split() based parsing RESOURCE_ID used to do, as the baseline
+	static String legacyFrom(String resourceId, int val) {
+		String[] parts = resourceId.split("/");
+		if(parts.length == 1 && val == RESOURCE_ID.NAME.val) {
+			return parts[0];
+		} else if(parts.length <= val) {
+			return null;
+		} else {
+			return parts[val];
+		}
+	}
+	
+	static String legacySetInID(String groupName, String id, int val) {
+		String[] parts = id.split("/");
+		if(parts.length <= val) {
+			return null;
+		} else {
+			parts[val] = groupName;
+			StringBuilder newId = new StringBuilder();
+			for(int i = 0; i< parts.length; i++) {
+				if(i>0) newId.append("/");
+				newId.append(parts[i]);
+			}
+			return newId.toString();
+		}
+	}
+	
+	@Benchmark
+	public String legacyGroupFromId() {
+		return legacyFrom(this.id, RESOURCE_ID.GROUP.val);
+	}
+	
+	@Benchmark
+	public String groupFromId() {
+		return RESOURCE_ID.GROUP.from(this.id);
+	}
+	
+	@Benchmark
+	public String groupFromParsedId() {
+		return this.parsedId.resourceGroup();
+	}
+
+	@Benchmark
+	public String legacyNameFromId() {
+		return legacyFrom(this.id, RESOURCE_ID.NAME.val);
+	}
+	
+	@Benchmark
+	public String nameFromId() {
+		return RESOURCE_ID.NAME.from(this.id);
+	}
+	
+	@Benchmark
+	public String nameFromParsedId() {
+		return this.parsedId.name();
+	}
+	
+	@Benchmark
+	public ResourceId parse() {
+		return ResourceId.parse(this.id);
+	}
+	
+	@Benchmark
+	public String legacySetGroupInId() {
+		return legacySetInID("othergroup", this.id, RESOURCE_ID.GROUP.val);
+	}
+	
+	@Benchmark
+	public String setGroupInId() {
+		return RESOURCE_ID.GROUP.setInID("othergroup", this.id);
+	}
+	
+	@Benchmark
+	public ResourceId setGroupInParsedId() {
+		return this.parsedId.withResourceGroup("othergroup");
+	}
+}
@@ -0,0 +1,122 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.services.implementation;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import com.microsoft.azure.shortcuts.common.implementation.Utils;
+import com.microsoft.azure.shortcuts.services.implementation.NetworkConfigQueue.Mutation;
+
+// Measures creating one classic network and deleting another in a multi-megabyte network configuration:
+// the original approach with new factories and a parse per step, the DOM helpers in Utils, and the streaming editor
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NetworkConfigBenchmark {
+	@Param({"1000", "10000"})
+	int existingSites;
+	
+	String networkConfig;
+	final String networkSite = "<VirtualNetworkSite name=\"newnet\" Location=\"West US\">"
+		+ "<AddressSpace><AddressPrefix>10.1.0.0/16</AddressPrefix></AddressSpace>"
+		+ "<Subnets>"
+		+ "<Subnet name=\"subnet1\"><AddressPrefix>10.1.0.0/24</AddressPrefix></Subnet>"
+		+ "<Subnet name=\"subnet2\"><AddressPrefix>10.1.1.0/24</AddressPrefix></Subnet>"
+		+ "</Subnets>"
+		+ "</VirtualNetworkSite>";
+	final String parentXPath = "/*[local-name()='NetworkConfiguration']"
+		+ "/*[local-name()='VirtualNetworkConfiguration']"
+		+ "/*[local-name()='VirtualNetworkSites']";
+	String deletedXPath;
+	
+	@Setup
+	public void setup() {
+		StringBuilder config = new StringBuilder("<NetworkConfiguration xmlns=\"http://schemas.microsoft.com/ServiceHosting/2011/07/NetworkConfiguration\">"
+			+ "<VirtualNetworkConfiguration><Dns /><VirtualNetworkSites>");
+		for(int i = 0; i < this.existingSites; i++) {
+			config.append(this.networkSite.replace("newnet", "net" + i));
+		}
+		config.append("</VirtualNetworkSites></VirtualNetworkConfiguration></NetworkConfiguration>");
+		this.networkConfig = config.toString();
+		this.deletedXPath = this.parentXPath + "/*[local-name()='VirtualNetworkSite' and @name='net" + (this.existingSites / 2) + "']";
+	}
+	
+	@Benchmark
+	public String original() throws Exception {
+		// Insert: XPath over a fresh parse, then a new parser for the child and a new transformer
+		Node parent = (Node) XPathFactory.newInstance().newXPath().evaluate(
+			this.parentXPath, new InputSource(new StringReader(this.networkConfig)), XPathConstants.NODE);
+		Document child = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(this.networkSite)));
+		parent.appendChild(parent.getOwnerDocument().importNode(child.getDocumentElement(), true));
+		StringWriter writer = new StringWriter();
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(parent.getOwnerDocument()), new StreamResult(writer));
+		
+		// Delete: the same again over the serialized result
+		Node site = (Node) XPathFactory.newInstance().newXPath().evaluate(
+			this.deletedXPath, new InputSource(new StringReader(writer.toString())), XPathConstants.NODE);
+		site.getParentNode().removeChild(site);
+		writer = new StringWriter();
+		TransformerFactory.newInstance().newTransformer().transform(new DOMSource(site.getOwnerDocument()), new StreamResult(writer));
+		return writer.toString();
+	}
+	
+	@Benchmark
+	public String utils() {
+		return Utils.deleteXMLElement(Utils.insertXMLElement(this.networkConfig, this.networkSite, this.parentXPath), this.deletedXPath);
+	}
+	
+	@Benchmark
+	public String streaming() throws Exception {
+		List<Mutation> mutations = Arrays.asList(
+			NetworkConfigQueue.create("newnet", this.networkSite),
+			NetworkConfigQueue.delete("net" + (this.existingSites / 2)));
+		return NetworkConfigEditor.apply(this.networkConfig, mutations, new HashMap<Mutation, Exception>());
+	}
+}
@@ -0,0 +1,33 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common;
+
+// Receives a record of every call made through the management clients, for metrics or tracing
+public interface CallRecorder {
+	/**
+	 * Records a completed call. Called on the thread that made the call, so implementations must be thread-safe and quick
+	 * @param operation The logical operation, such as "VirtualMachines.get"
+	 * @param resourceType The type of resource the operation applies to, such as "Microsoft.Compute/virtualMachines"
+	 * @param status The HTTP status of the last response, or 0 if the call failed without a response
+	 * @param retries The number of times the call was retried after being throttled
+	 * @param latencyNanos The time the call took, including any pacing and retries
+	 */
+	void record(String operation, String resourceType, int status, int retries, long latencyNanos);
+}
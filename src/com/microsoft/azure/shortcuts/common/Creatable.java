@@ -19,7 +19,16 @@
 */
 package com.microsoft.azure.shortcuts.common;
 
+import java.util.concurrent.CompletableFuture;
+
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+
 // Encapsulates the provisioning method 
 public interface Creatable<T> {
 	T create() throws Exception;
+	
+	// Runs create() on the executor of the client
+	default CompletableFuture<T> createAsync() {
+		return Async.run(this, () -> create());
+	}
 }
\ No newline at end of file
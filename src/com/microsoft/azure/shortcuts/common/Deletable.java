@@ -19,6 +19,18 @@
 */
 package com.microsoft.azure.shortcuts.common;
 
+import java.util.concurrent.CompletableFuture;
+
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+
 public interface Deletable {
 	void delete() throws Exception;
+	
+	// Runs delete() on the executor of the client
+	default CompletableFuture<Void> deleteAsync() {
+		return Async.run(this, () -> {
+			delete();
+			return null;
+		});
+	}
 }
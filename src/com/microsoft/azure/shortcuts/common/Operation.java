@@ -0,0 +1,64 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Handle on a long-running operation, tracked in the background until it completes
+public interface Operation<T> {
+	/**
+	 * @return The ID of the entity the operation applies to
+	 */
+	String target();
+	
+	/**
+	 * @return The name of the operation, such as "stop" or "capture"
+	 */
+	String verb();
+	
+	/**
+	 * @return True if the operation has completed, successfully or not
+	 */
+	boolean isDone();
+	
+	/**
+	 * @return A future completed with the result of the operation once it succeeds, or exceptionally if it fails. 
+	 * Use it to attach completion callbacks or to combine several operations. Cancelling it stops tracking the operation,
+	 * but does not cancel it in Azure.
+	 */
+	CompletableFuture<T> future();
+	
+	/**
+	 * Blocks until the operation completes
+	 * @return The result of the operation
+	 * @throws Exception The exception the operation failed with
+	 */
+	T await() throws Exception;
+	
+	/**
+	 * Blocks until the operation completes or the timeout elapses
+	 * @param timeout The maximum time to wait
+	 * @param unit The unit of the timeout
+	 * @return The result of the operation
+	 * @throws Exception The exception the operation failed with, or TimeoutException
+	 */
+	T await(long timeout, TimeUnit unit) throws Exception;
+}
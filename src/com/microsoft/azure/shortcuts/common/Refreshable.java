@@ -19,7 +19,16 @@
 */
 package com.microsoft.azure.shortcuts.common;
 
+import java.util.concurrent.CompletableFuture;
+
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+
 // Reprepresents refreshable objecta
 public interface Refreshable<T> {
 	T refresh() throws Exception;
+	
+	// Runs refresh() on the executor of the client
+	default CompletableFuture<T> refreshAsync() {
+		return Async.run(this, () -> refresh());
+	}
 }
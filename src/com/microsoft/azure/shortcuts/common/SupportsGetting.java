@@ -19,7 +19,16 @@
 */
 package com.microsoft.azure.shortcuts.common;
 
+import java.util.concurrent.CompletableFuture;
+
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+
 // Requires class to support reading entities
 public interface SupportsGetting<T> {
 	T get(String name) throws Exception;
+	
+	// Runs get() on the executor of the client
+	default CompletableFuture<T> getAsync(final String name) {
+		return Async.run(this, () -> get(name));
+	}
 }
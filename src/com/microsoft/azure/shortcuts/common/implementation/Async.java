@@ -0,0 +1,102 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Helpers for running the blocking verbs asynchronously
+public final class Async {
+	private Async() {
+	}
+	
+	// Daemon threads, so that pending asynchronous calls do not keep the process alive
+	private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger count = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "azure-shortcuts-async-" + this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	
+	/**
+	 * @return The executor used when none has been set on the client
+	 */
+	public static Executor defaultExecutor() {
+		return DEFAULT_EXECUTOR;
+	}
+	
+	
+	/**
+	 * @param target The object running the verb
+	 * @return The executor of the target if it provides one, else the default executor
+	 */
+	public static Executor executorOf(Object target) {
+		Executor executor = (target instanceof ExecutorProvider) ? ((ExecutorProvider) target).executor() : null;
+		return (executor != null) ? executor : DEFAULT_EXECUTOR;
+	}
+	
+	
+	/**
+	 * Runs a blocking verb on the executor of the object running it, as the asynchronous default methods of the verb interfaces do
+	 * @param target The object running the verb
+	 * @param call The blocking call
+	 * @return A future completed with the result of the call, or exceptionally with the exception it threw
+	 */
+	public static <T> CompletableFuture<T> run(Object target, Callable<T> call) {
+		return supply(call, executorOf(target));
+	}
+	
+	
+	/**
+	 * Runs a blocking call on the specified executor
+	 * @param call The blocking call
+	 * @param executor The executor to run the call on
+	 * @return A future completed with the result of the call, or exceptionally with the exception it threw
+	 */
+	public static <T> CompletableFuture<T> supply(final Callable<T> call, Executor executor) {
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						future.complete(call.call());
+					} catch(Throwable e) {
+						future.completeExceptionally(e);
+					}
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+}
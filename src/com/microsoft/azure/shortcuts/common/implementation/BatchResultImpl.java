@@ -0,0 +1,57 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.microsoft.azure.shortcuts.common.BatchResult;
+
+// Collects the outcomes of a batch operation, recorded concurrently as each one completes
+public class BatchResultImpl implements BatchResult {
+	private final List<String> succeeded = new ArrayList<>();
+	private final Map<String, Exception> failed = new LinkedHashMap<>();
+	
+	public synchronized void recordSuccess(String id) {
+		this.succeeded.add(id);
+	}
+	
+	public synchronized void recordFailure(String id, Exception e) {
+		this.failed.put(id, e);
+	}
+	
+	@Override
+	public synchronized List<String> succeeded() {
+		return Collections.unmodifiableList(new ArrayList<>(this.succeeded));
+	}
+
+	@Override
+	public synchronized Map<String, Exception> failed() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(this.failed));
+	}
+
+	@Override
+	public synchronized boolean isSuccessful() {
+		return this.failed.isEmpty();
+	}
+}
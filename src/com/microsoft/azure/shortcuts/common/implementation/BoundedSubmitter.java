@@ -0,0 +1,78 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Runs calls on a shared executor with at most a given number of them in flight at once, so that a batch verb 
+// bounds its concurrency without creating a pool of its own. Submitting waits for one of the calls in flight to complete
+public class BoundedSubmitter {
+	private final Executor executor;
+	private final Semaphore permits;
+	
+	/**
+	 * @param executor The executor to run the calls on, typically the executor of the client
+	 * @param parallelism The maximum number of calls in flight at once
+	 */
+	public BoundedSubmitter(Executor executor, int parallelism) {
+		this.executor = executor;
+		this.permits = new Semaphore(Math.max(1, parallelism));
+	}
+	
+	
+	/**
+	 * Runs the call once fewer than the maximum number of calls are in flight
+	 * @param call The call
+	 * @return A future completed with the result of the call, or exceptionally with the exception it threw
+	 * @throws InterruptedException
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> call) throws InterruptedException {
+		this.permits.acquire();
+		return this.start(call);
+	}
+	
+	
+	/**
+	 * Runs the call once fewer than the maximum number of calls are in flight, unless that does not happen before the deadline
+	 * @param call The call
+	 * @param deadlineNanos The deadline, as given by System.nanoTime()
+	 * @return A future completed with the result of the call, or exceptionally with the exception it threw
+	 * @throws InterruptedException
+	 * @throws TimeoutException The deadline passed before the call could start
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> call, long deadlineNanos) throws InterruptedException, TimeoutException {
+		if(!this.permits.tryAcquire(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+			throw new TimeoutException();
+		}
+		return this.start(call);
+	}
+	
+	
+	private <T> CompletableFuture<T> start(Callable<T> call) {
+		final CompletableFuture<T> future = Async.supply(call, this.executor);
+		future.whenComplete((result, e) -> this.permits.release());
+		return future;
+	}
+}
@@ -0,0 +1,181 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.microsoft.azure.shortcuts.common.CallRecorder;
+
+// Aggregates call records into per-operation counters and latency histograms, exportable in the Prometheus text format
+public class CallMetrics implements CallRecorder {
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+	
+	private final ConcurrentHashMap<String, Stats> operations = new ConcurrentHashMap<>();
+	
+	// The metrics of one operation
+	private static class Stats {
+		final String resourceType;
+		final LatencyHistogram latency = new LatencyHistogram();
+		final ConcurrentHashMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+		final LongAdder errors = new LongAdder();
+		final LongAdder retries = new LongAdder();
+		
+		Stats(String resourceType) {
+			this.resourceType = resourceType;
+		}
+	}
+	
+	
+	@Override
+	public void record(String operation, String resourceType, int status, int retries, long latencyNanos) {
+		final Stats stats = this.operations.computeIfAbsent(operation, o -> new Stats(resourceType));
+		stats.latency.record(latencyNanos, TimeUnit.NANOSECONDS);
+		stats.statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+		stats.retries.add(retries);
+		if(status == 0 || status >= 400) {
+			stats.errors.increment();
+		}
+	}
+	
+	
+	/**
+	 * @return The names of the operations recorded so far
+	 */
+	public Set<String> operations() {
+		return Collections.unmodifiableSet(new TreeSet<>(this.operations.keySet()));
+	}
+	
+	
+	/**
+	 * @param operation The name of the operation, such as "VirtualMachines.get"
+	 * @return The latency histogram of the operation, or null if it was not recorded
+	 */
+	public LatencyHistogram latency(String operation) {
+		final Stats stats = this.operations.get(operation);
+		return (stats != null) ? stats.latency : null;
+	}
+	
+	
+	/**
+	 * @param operation The name of the operation
+	 * @return The number of calls to the operation, by HTTP status, where 0 stands for calls that failed without a response
+	 */
+	public Map<Integer, Long> calls(String operation) {
+		final TreeMap<Integer, Long> calls = new TreeMap<>();
+		final Stats stats = this.operations.get(operation);
+		if(stats != null) {
+			for(Map.Entry<Integer, LongAdder> status : stats.statuses.entrySet()) {
+				calls.put(status.getKey(), status.getValue().sum());
+			}
+		}
+		return Collections.unmodifiableMap(calls);
+	}
+	
+	
+	/**
+	 * @param operation The name of the operation
+	 * @return The number of calls to the operation that failed
+	 */
+	public long errors(String operation) {
+		final Stats stats = this.operations.get(operation);
+		return (stats != null) ? stats.errors.sum() : 0;
+	}
+	
+	
+	/**
+	 * @param operation The name of the operation
+	 * @return The number of times calls to the operation were retried after being throttled
+	 */
+	public long retries(String operation) {
+		final Stats stats = this.operations.get(operation);
+		return (stats != null) ? stats.retries.sum() : 0;
+	}
+	
+	
+	/**
+	 * Writes the metrics in the Prometheus text exposition format
+	 * @param out Where to write the metrics
+	 * @throws IOException
+	 */
+	public void export(Appendable out) throws IOException {
+		final TreeMap<String, Stats> operations = new TreeMap<>(this.operations);
+		
+		out.append("# TYPE azure_shortcuts_calls_total counter\n");
+		for(Map.Entry<String, Stats> operation : operations.entrySet()) {
+			for(Map.Entry<Integer, Long> status : calls(operation.getKey()).entrySet()) {
+				appendSample(out, "azure_shortcuts_calls_total", operation, "status", String.valueOf(status.getKey()), status.getValue());
+			}
+		}
+		
+		out.append("# TYPE azure_shortcuts_retries_total counter\n");
+		for(Map.Entry<String, Stats> operation : operations.entrySet()) {
+			appendSample(out, "azure_shortcuts_retries_total", operation, null, null, operation.getValue().retries.sum());
+		}
+		
+		out.append("# TYPE azure_shortcuts_call_latency_seconds summary\n");
+		for(Map.Entry<String, Stats> operation : operations.entrySet()) {
+			final LatencyHistogram latency = operation.getValue().latency;
+			for(double quantile : QUANTILES) {
+				appendSample(out, "azure_shortcuts_call_latency_seconds", operation, "quantile", String.valueOf(quantile), 
+					latency.percentileMicros(quantile * 100) / 1e6);
+			}
+			appendSample(out, "azure_shortcuts_call_latency_seconds_sum", operation, null, null, latency.sumMicros() / 1e6);
+			appendSample(out, "azure_shortcuts_call_latency_seconds_count", operation, null, null, latency.count());
+		}
+	}
+	
+	
+	/**
+	 * @return The metrics in the Prometheus text exposition format
+	 */
+	public String export() {
+		final StringBuilder out = new StringBuilder();
+		try {
+			this.export(out);
+		} catch(IOException e) {
+			// Not thrown by StringBuilder
+		}
+		return out.toString();
+	}
+	
+	
+	private static void appendSample(Appendable out, String metric, Map.Entry<String, Stats> operation, String label, String value, Number sample) throws IOException {
+		out.append(metric)
+			.append("{operation=\"").append(escape(operation.getKey()))
+			.append("\",resource_type=\"").append(escape(operation.getValue().resourceType)).append('"');
+		if(label != null) {
+			out.append(',').append(label).append("=\"").append(escape(value)).append('"');
+		}
+		out.append("} ").append(String.valueOf(sample)).append('\n');
+	}
+	
+	
+	private static String escape(String value) {
+		return (value == null) ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -0,0 +1,185 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs a set of provisioning steps as a dependency graph, starting each step as soon as the steps it depends on
+// have completed, so that independent branches run concurrently. The steps run on the executor of the client, 
+// with the calling thread also taking ready steps while it waits, so the plan completes even if the executor is saturated
+public class CreationPlan {
+	private final ArrayList<Step<?>> steps = new ArrayList<>();
+	private final ConcurrentLinkedQueue<Step<?>> ready = new ConcurrentLinkedQueue<>();
+	private final Executor executor;
+	private CountDownLatch remaining;
+	private volatile Exception failure;
+	
+	
+	/**
+	 * @param executor The executor to run the steps on
+	 */
+	public CreationPlan(Executor executor) {
+		this.executor = executor;
+	}
+	
+	
+	// A provisioning step within the plan
+	public class Step<T> {
+		private final Callable<T> action;
+		private final List<Step<?>> dependencies;
+		private final ArrayList<Step<?>> dependents = new ArrayList<>();
+		private final AtomicInteger pendingDependencies = new AtomicInteger();
+		private volatile T result;
+		
+		private Step(Callable<T> action, List<Step<?>> dependencies) {
+			this.action = action;
+			this.dependencies = dependencies;
+		}
+		
+		/**
+		 * @return The result of the step, once the plan has run
+		 */
+		public T result() {
+			return this.result;
+		}
+		
+		
+		// Runs the step, then schedules the dependents that are no longer waiting on anything else
+		private void run() {
+			try {
+				if(failure == null) {
+					this.result = this.action.call();
+				}
+			} catch(Exception e) {
+				fail(e);
+			} finally {
+				for(Step<?> dependent : this.dependents) {
+					if(dependent.pendingDependencies.decrementAndGet() == 0) {
+						schedule(dependent);
+					}
+				}
+				remaining.countDown();
+				signal();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Adds a step to the plan
+	 * @param action The work to perform, which can read the results of its dependencies
+	 * @param dependencies The steps that must complete before this one starts; they must already be part of this plan
+	 * @return The new step
+	 */
+	public <T> Step<T> add(Callable<T> action, Step<?>... dependencies) {
+		Step<T> step = new Step<T>(action, Arrays.<Step<?>>asList(dependencies));
+		for(Step<?> dependency : dependencies) {
+			dependency.dependents.add(step);
+		}
+		this.steps.add(step);
+		return step;
+	}
+	
+	
+	/**
+	 * Runs all the steps and waits for them to complete
+	 * @throws Exception The first error thrown by any step; steps not yet started at that point are skipped
+	 */
+	public void run() throws Exception {
+		this.remaining = new CountDownLatch(this.steps.size());
+		for(Step<?> step : this.steps) {
+			step.pendingDependencies.set(step.dependencies.size());
+		}
+		
+		for(Step<?> step : this.steps) {
+			if(step.dependencies.isEmpty()) {
+				schedule(step);
+			}
+		}
+		
+		// Help with the ready steps rather than only waiting
+		while(this.remaining.getCount() > 0) {
+			if(!runNext()) {
+				synchronized(this.ready) {
+					if(this.ready.isEmpty() && this.remaining.getCount() > 0) {
+						this.ready.wait(100);
+					}
+				}
+			}
+		}
+		
+		if(this.failure != null) {
+			throw this.failure;
+		}
+	}
+	
+	
+	// Queues a ready step, and asks the executor for a thread to run it
+	private void schedule(final Step<?> step) {
+		this.ready.add(step);
+		signal();
+		try {
+			this.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					runNext();
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			// The calling thread runs it
+		}
+	}
+	
+	
+	// Runs the next ready step, if any is left
+	private boolean runNext() {
+		Step<?> step = this.ready.poll();
+		if(step == null) {
+			return false;
+		}
+		
+		step.run();
+		return true;
+	}
+	
+	
+	// Wakes up the calling thread to take a ready step or to return
+	private void signal() {
+		synchronized(this.ready) {
+			this.ready.notifyAll();
+		}
+	}
+	
+	
+	// Remembers the first failure, which makes all steps not yet started a no-op
+	private synchronized void fail(Exception e) {
+		if(this.failure == null) {
+			this.failure = e;
+		}
+	}
+}
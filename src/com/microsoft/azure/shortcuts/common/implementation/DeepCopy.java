@@ -0,0 +1,160 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Deep copies of the objects returned by the Azure SDKs, so that wrappers built from one cached or shared read each edit their own.
+// The SDK models are mutable beans without clone support, so their fields are copied reflectively, recursing into nested models,
+// arrays, collections and maps, while JDK values such as strings, numbers, enums and URIs are immutable and shared
+public final class DeepCopy {
+	private static final ConcurrentHashMap<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+	
+	private DeepCopy() {}
+	
+	
+	/**
+	 * @param source The object to copy
+	 * @return A copy of the object sharing no mutable state with it, or null if the object is null
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T of(T source) {
+		try {
+			return (T) copy(source, new IdentityHashMap<>());
+		} catch(ReflectiveOperationException e) {
+			throw new IllegalStateException("Failed to copy " + source.getClass().getName(), e);
+		}
+	}
+	
+	
+	@SuppressWarnings("unchecked")
+	private static Object copy(Object source, IdentityHashMap<Object, Object> copies) throws ReflectiveOperationException {
+		if(source == null || source instanceof Enum) {
+			return source;
+		}
+		
+		Object target = copies.get(source);
+		if(target != null) {
+			return target;
+		}
+		
+		final Class<?> type = source.getClass();
+		if(type.isArray()) {
+			final int length = Array.getLength(source);
+			target = Array.newInstance(type.getComponentType(), length);
+			copies.put(source, target);
+			for(int i = 0; i < length; i++) {
+				Array.set(target, i, type.getComponentType().isPrimitive() ? Array.get(source, i) : copy(Array.get(source, i), copies));
+			}
+		} else if(source instanceof Calendar) {
+			target = ((Calendar) source).clone();
+			copies.put(source, target);
+		} else if(source instanceof Date) {
+			target = ((Date) source).clone();
+			copies.put(source, target);
+		} else if(source instanceof Collection) {
+			Collection<Object> collection = (Collection<Object>) newInstance(type);
+			if(collection == null) {
+				collection = (source instanceof Set) ? new LinkedHashSet<>() : new ArrayList<>();
+			}
+			copies.put(source, target = collection);
+			for(Object item : (Collection<Object>) source) {
+				collection.add(copy(item, copies));
+			}
+			copyFields(source, target, copies);
+		} else if(source instanceof Map) {
+			Map<Object, Object> map = (Map<Object, Object>) newInstance(type);
+			if(map == null) {
+				map = new LinkedHashMap<>();
+			}
+			copies.put(source, target = map);
+			for(Map.Entry<Object, Object> entry : ((Map<Object, Object>) source).entrySet()) {
+				map.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+			}
+			copyFields(source, target, copies);
+		} else if(isJdk(type) || (target = newInstance(type)) == null) {
+			// Strings, numbers, URIs and the like, or a type that cannot be instantiated
+			return source;
+		} else {
+			copies.put(source, target);
+			copyFields(source, target, copies);
+		}
+		
+		return target;
+	}
+	
+	
+	// Copies the fields declared by the non-JDK classes in the hierarchy of the object, such as the initialization flag of the SDK's lazy lists
+	private static void copyFields(Object source, Object target, IdentityHashMap<Object, Object> copies) throws ReflectiveOperationException {
+		for(Field field : fieldsOf(source.getClass())) {
+			field.set(target, field.getType().isPrimitive() ? field.get(source) : copy(field.get(source), copies));
+		}
+	}
+	
+	
+	private static Field[] fieldsOf(Class<?> type) {
+		Field[] fields = FIELDS.get(type);
+		if(fields == null) {
+			List<Field> found = new ArrayList<>();
+			for(Class<?> c = type; c != null && !isJdk(c); c = c.getSuperclass()) {
+				for(Field field : c.getDeclaredFields()) {
+					if(!Modifier.isStatic(field.getModifiers())) {
+						field.setAccessible(true);
+						found.add(field);
+					}
+				}
+			}
+			fields = found.toArray(new Field[found.size()]);
+			FIELDS.putIfAbsent(type, fields);
+		}
+		return fields;
+	}
+	
+	
+	// Returns a new instance made with the no-argument constructor, or null if there is none
+	private static Object newInstance(Class<?> type) throws ReflectiveOperationException {
+		try {
+			Constructor<?> constructor = type.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return constructor.newInstance();
+		} catch(NoSuchMethodException | RuntimeException e) {
+			return null;
+		}
+	}
+	
+	
+	private static boolean isJdk(Class<?> type) {
+		return type.getClassLoader() == null;
+	}
+}
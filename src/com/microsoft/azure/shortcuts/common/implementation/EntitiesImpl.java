@@ -19,7 +19,9 @@
 */
 package com.microsoft.azure.shortcuts.common.implementation;
 
-public abstract class EntitiesImpl<T> {
+import java.util.concurrent.Executor;
+
+public abstract class EntitiesImpl<T extends ExecutorProvider> implements ExecutorProvider {
 	final protected T subscription;
 	protected EntitiesImpl(T subscription) {
 		this.subscription = subscription;
@@ -28,4 +30,9 @@ public abstract class EntitiesImpl<T> {
 	public T subscription() {
 		return this.subscription;
 	}
+	
+	@Override
+	public Executor executor() {
+		return this.subscription.executor();
+	}
 }
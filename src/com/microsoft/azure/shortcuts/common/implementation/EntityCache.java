@@ -0,0 +1,196 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Size bounded, least recently used cache of entities keyed case-insensitively, with entries expiring after a time to live.
+// Used through get(key, loader), it is also a read-through cache whose concurrent loads of the same key share a single call
+public class EntityCache<V> {
+	private final int maxSize;
+	private volatile long timeToLiveMillis;
+	private final LinkedHashMap<String, Entry<V>> entries;
+	private final SingleFlight loads = new SingleFlight();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private long generation = 0;
+	
+	private static class Entry<V> {
+		final V value;
+		final long storedAt;
+		Entry(V value, long storedAt) {
+			this.value = value;
+			this.storedAt = storedAt;
+		}
+	}
+	
+	public EntityCache(int maxSize, long timeToLive, TimeUnit unit) {
+		if(maxSize <= 0) {
+			throw new IllegalArgumentException("The cache size must be positive");
+		}
+		
+		this.maxSize = maxSize;
+		this.timeToLiveMillis = unit.toMillis(timeToLive);
+		this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+				return this.size() > EntityCache.this.maxSize;
+			}
+		};
+	}
+	
+	
+	/**
+	 * @param key The key of the entity
+	 * @return The cached entity, or null if it is not cached or has expired
+	 */
+	public synchronized V get(String key) {
+		key = key.toLowerCase();
+		Entry<V> entry = this.entries.get(key);
+		if(entry == null) {
+			this.misses.incrementAndGet();
+			return null;
+		} else if(System.currentTimeMillis() - entry.storedAt >= this.timeToLiveMillis) {
+			this.entries.remove(key);
+			this.misses.incrementAndGet();
+			return null;
+		} else {
+			this.hits.incrementAndGet();
+			return entry.value;
+		}
+	}
+	
+	
+	/**
+	 * Returns the cached entity, loading and caching it first if it is not cached or has expired. Callers arriving while the entity
+	 * is being loaded wait for that load rather than starting their own, and a load that started before an invalidation 
+	 * is returned to its callers but not cached
+	 * @param key The key of the entity
+	 * @param loader Loads the entity
+	 * @return The entity
+	 * @throws Exception The exception the load failed with
+	 */
+	public V get(final String key, final Callable<V> loader) throws Exception {
+		V value = this.get(key);
+		if(value != null) {
+			return value;
+		}
+		
+		return this.loads.call(key, new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				final long generation = generation();
+				final V loaded = loader.call();
+				putIfCurrent(key, loaded, generation);
+				return loaded;
+			}
+		});
+	}
+	
+	
+	public synchronized void put(String key, V value) {
+		this.entries.put(key.toLowerCase(), new Entry<V>(value, System.currentTimeMillis()));
+	}
+	
+	
+	/**
+	 * @param timeToLive How long entities are served from the cache, including the ones already cached, or 0 to never serve them
+	 * @param unit The unit of the time to live
+	 */
+	public void setTimeToLive(long timeToLive, TimeUnit unit) {
+		this.timeToLiveMillis = unit.toMillis(timeToLive);
+	}
+	
+	
+	/**
+	 * @return The current generation of the cache, advanced by every invalidation. To be read before fetching an entity 
+	 * that is then cached with putIfCurrent()
+	 */
+	public synchronized long generation() {
+		return this.generation;
+	}
+	
+	
+	/**
+	 * Caches the entity unless the cache was invalidated since the specified generation, 
+	 * so that a fetch that started before a write does not put back the state from before it
+	 * @param key The key of the entity
+	 * @param value The entity
+	 * @param generation The generation read before the entity was fetched
+	 * @return True if the entity was cached
+	 */
+	public synchronized boolean putIfCurrent(String key, V value, long generation) {
+		if(generation != this.generation) {
+			return false;
+		}
+		
+		put(key, value);
+		return true;
+	}
+	
+	
+	public synchronized void invalidate(String key) {
+		this.generation++;
+		this.entries.remove(key.toLowerCase());
+		this.loads.forget(key);
+	}
+	
+	
+	// Removes the entries whose keys start with the specified prefix
+	public synchronized void invalidatePrefix(String prefix) {
+		this.generation++;
+		this.loads.forgetAll();
+		prefix = prefix.toLowerCase();
+		for(Iterator<String> keys = this.entries.keySet().iterator(); keys.hasNext(); ) {
+			if(keys.next().startsWith(prefix)) {
+				keys.remove();
+			}
+		}
+	}
+	
+	
+	public synchronized void invalidateAll() {
+		this.generation++;
+		this.entries.clear();
+		this.loads.forgetAll();
+	}
+	
+	
+	public synchronized int size() {
+		return this.entries.size();
+	}
+	
+	
+	public long hits() {
+		return this.hits.get();
+	}
+	
+	
+	public long misses() {
+		return this.misses.get();
+	}
+}
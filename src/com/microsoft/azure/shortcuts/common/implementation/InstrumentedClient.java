@@ -0,0 +1,182 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import com.microsoft.azure.shortcuts.common.CallRecorder;
+import com.microsoft.windowsazure.core.FilterableService;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceRequestContext;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceResponseContext;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceResponseFilter;
+import com.microsoft.windowsazure.exception.ServiceException;
+
+// Reports every call made through a management client to a call recorder, named after the operation group of the SDK,
+// e.g. "VirtualMachines.get" for VirtualMachineOperations.get()
+public final class InstrumentedClient {
+	// The status of the last response received by the current thread, and the retries of its current call
+	private static final ThreadLocal<int[]> CALL_STATE = ThreadLocal.withInitial(() -> new int[2]);
+	private static final int STATUS = 0;
+	private static final int RETRIES = 1;
+	
+	private static final ServiceResponseFilter STATUS_FILTER = new ServiceResponseFilter() {
+		@Override
+		public void filter(ServiceRequestContext request, ServiceResponseContext response) {
+			CALL_STATE.get()[STATUS] = response.getStatus();
+		}
+	};
+	
+	private InstrumentedClient() {
+	}
+	
+	
+	/**
+	 * Makes the client report the HTTP status of its responses, so that wrap() can record it. Must be called on the client
+	 * as created by its management service, before any other wrapping
+	 * @param client The client
+	 * @return The client observing its responses
+	 */
+	public static <T extends FilterableService<T>> T observe(T client) {
+		return client.withResponseFilterLast(STATUS_FILTER);
+	}
+	
+	
+	/**
+	 * Notes that the call in progress on the current thread is being retried
+	 */
+	public static void noteRetry() {
+		CALL_STATE.get()[RETRIES]++;
+	}
+	
+	
+	/**
+	 * Wraps the client so that its calls are reported to the recorder
+	 * @param type The interface of the client
+	 * @param client The client, observed with observe()
+	 * @param provider The resource provider namespace the client manages, such as "Microsoft.Compute"
+	 * @param recorder Supplies the current recorder, or null when calls are not being recorded
+	 * @return The instrumented client
+	 */
+	public static <T> T wrap(Class<T> type, T client, String provider, Supplier<CallRecorder> recorder) {
+		return type.cast(instrument(type, client, provider, null, recorder));
+	}
+	
+	
+	// Instruments the client itself (group == null) or one of its operation groups
+	private static Object instrument(final Class<?> type, final Object target, final String provider, final String group, final Supplier<CallRecorder> recorder) {
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+			private final ConcurrentHashMap<Method, Object> operations = new ConcurrentHashMap<>();
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				final Class<?> returnType = method.getReturnType();
+				if(group == null && returnType.isInterface() && returnType.getSimpleName().endsWith("Operations")) {
+					final Object operations = invokeTarget(method, args);
+					return (operations == null) ? null : this.operations.computeIfAbsent(method, 
+						m -> instrument(returnType, operations, provider, groupName(returnType), recorder));
+				}
+				
+				// Only the calls to Azure are recorded, not the client's accessors, nor the asynchronous variants whose latency is the caller's
+				final CallRecorder callRecorder = recorder.get();
+				if(callRecorder == null 
+						|| method.getDeclaringClass() == Object.class 
+						|| Future.class.isAssignableFrom(returnType) 
+						|| (group == null && !method.getName().endsWith("OperationStatus"))) {
+					return invokeTarget(method, args);
+				}
+				
+				// Calls may nest, such as long-running operations polling for their status
+				final int[] state = CALL_STATE.get();
+				final int outerStatus = state[STATUS], outerRetries = state[RETRIES];
+				state[STATUS] = 0;
+				state[RETRIES] = 0;
+				final long start = System.nanoTime();
+				int status = 0;
+				try {
+					final Object result = invokeTarget(method, args);
+					status = (state[STATUS] != 0) ? state[STATUS] : 200;
+					return result;
+				} catch(Throwable e) {
+					status = statusOf(e, state[STATUS]);
+					throw e;
+				} finally {
+					final long latency = System.nanoTime() - start;
+					final int retries = state[RETRIES];
+					state[STATUS] = outerStatus;
+					state[RETRIES] = outerRetries;
+					try {
+						final String operationGroup = (group != null) ? group : provider.substring(provider.indexOf('.') + 1);
+						callRecorder.record(operationGroup + "." + method.getName(), resourceType(provider, group), status, retries, latency);
+					} catch(RuntimeException e) {
+						// A faulty recorder must not fail the call
+					}
+				}
+			}
+			
+			private Object invokeTarget(Method method, Object[] args) throws Throwable {
+				try {
+					return method.invoke(target, args);
+				} catch(InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+	
+	
+	// The status of a failed call: the one Azure responded with, else the last one observed, else 0 for no response
+	private static int statusOf(Throwable e, int observed) {
+		while(e instanceof ExecutionException && e.getCause() != null) {
+			e = e.getCause();
+		}
+		return (e instanceof ServiceException && ((ServiceException) e).getHttpStatusCode() > 0) 
+			? ((ServiceException) e).getHttpStatusCode() 
+			: observed;
+	}
+	
+	
+	// Names the operation group after its interface, e.g. "VirtualMachines" for VirtualMachineOperations
+	static String groupName(Class<?> operationsType) {
+		final String name = operationsType.getSimpleName();
+		final String singular = name.substring(0, name.length() - "Operations".length());
+		if(singular.isEmpty()) {
+			return name;
+		} else if(singular.endsWith("s")) {
+			return singular + "es";
+		} else if(singular.endsWith("y") && singular.length() > 1 && "aeiou".indexOf(singular.charAt(singular.length() - 2)) < 0) {
+			return singular.substring(0, singular.length() - 1) + "ies";
+		} else {
+			return singular + "s";
+		}
+	}
+	
+	
+	// The resource type of the operation group, e.g. "Microsoft.Compute/virtualMachines"
+	private static String resourceType(String provider, String group) {
+		return (group == null) ? provider : provider + "/" + Character.toLowerCase(group.charAt(0)) + group.substring(1);
+	}
+}
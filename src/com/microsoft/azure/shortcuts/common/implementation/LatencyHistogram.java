@@ -0,0 +1,120 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram: values are recorded in microseconds
+// with a relative error under 1.6%, from 1 microsecond to about 12 days, in a fixed amount of memory
+public class LatencyHistogram {
+	// Each power of two range is split into 64 linear sub-buckets; values below 128 are recorded exactly
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_VALUE_BITS = 40;
+	private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	
+	/**
+	 * Records a latency
+	 * @param duration The latency
+	 * @param unit The unit of the latency
+	 */
+	public void record(long duration, TimeUnit unit) {
+		final long micros = Math.min(MAX_VALUE, Math.max(0, unit.toMicros(duration)));
+		this.counts.incrementAndGet(indexOf(micros));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(micros);
+		this.max.accumulateAndGet(micros, Math::max);
+	}
+	
+	
+	/**
+	 * @return The number of latencies recorded
+	 */
+	public long count() {
+		return this.count.get();
+	}
+	
+	
+	/**
+	 * @return The sum of the latencies recorded, in microseconds
+	 */
+	public long sumMicros() {
+		return this.sum.get();
+	}
+	
+	
+	/**
+	 * @return The highest latency recorded, in microseconds
+	 */
+	public long maxMicros() {
+		return this.max.get();
+	}
+	
+	
+	/**
+	 * @param percentile The percentile, between 0 and 100, such as 99.9
+	 * @return The latency at the percentile, in microseconds, or 0 if nothing was recorded
+	 */
+	public long percentileMicros(double percentile) {
+		final long total = this.count.get();
+		if(total == 0) {
+			return 0;
+		}
+		
+		final long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+		long seen = 0;
+		for(int index = 0; index < this.counts.length(); index++) {
+			seen += this.counts.get(index);
+			if(seen >= rank) {
+				// Report the highest value of the bucket, but never more than was actually recorded
+				return Math.min(this.max.get(), lowestValueAt(index + 1) - 1);
+			}
+		}
+		return this.max.get();
+	}
+	
+	
+	private static int indexOf(long value) {
+		if(value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		
+		final int bucket = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (bucket << SUB_BUCKET_BITS) + (int) (value >>> bucket);
+	}
+	
+	
+	private static long lowestValueAt(int index) {
+		if(index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		
+		final int bucket = (index >>> SUB_BUCKET_BITS) - 1;
+		return (long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << bucket;
+	}
+}
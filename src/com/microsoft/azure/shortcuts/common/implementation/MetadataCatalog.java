@@ -0,0 +1,358 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Versioned on-disk store of rarely changing reference data, such as regions, sizes, providers and OS images, so that a new process
+// can serve it without calling Azure. Stale entries are served as is while being revalidated in the background, unless offline
+public class MetadataCatalog {
+	public static final int FORMAT_VERSION = 1;
+	public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+	private static final String HEADER = "azure-shortcuts-metadata";
+	private static final String NULL = "\\0";
+	private static final char LIST_SEPARATOR = '\u001F';
+	
+	// Converts a value to and from the rows of text stored in the catalog
+	public interface Codec<T> {
+		List<String[]> encode(T value) throws Exception;
+		T decode(List<String[]> rows) throws Exception;
+	}
+	
+	// Stores a list of strings, one per row
+	public static final Codec<List<String>> STRINGS = new Codec<List<String>>() {
+		@Override
+		public List<String[]> encode(List<String> value) {
+			final List<String[]> rows = new ArrayList<>();
+			for(String item : value) {
+				rows.add(new String[] { item });
+			}
+			return rows;
+		}
+
+		@Override
+		public List<String> decode(List<String[]> rows) {
+			final List<String> value = new ArrayList<>();
+			for(String[] row : rows) {
+				value.add((row.length > 0) ? row[0] : null);
+			}
+			return Collections.unmodifiableList(value);
+		}
+	};
+	
+	private static class Entry {
+		final long fetchedAt;
+		final List<String[]> rows;
+		volatile Object value = null;
+		Entry(long fetchedAt, List<String[]> rows) {
+			this.fetchedAt = fetchedAt;
+			this.rows = Collections.unmodifiableList(rows);
+		}
+	}
+	
+	private final File file;
+	private final ExecutorProvider executorProvider;
+	private volatile boolean offline = false;
+	private volatile long maxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+	private volatile Map<String, Entry> entries = null;
+	private final ConcurrentHashMap<String, Object> fetchLocks = new ConcurrentHashMap<>();
+	private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+	
+	public MetadataCatalog(File file, ExecutorProvider executorProvider) {
+		this.file = file;
+		this.executorProvider = executorProvider;
+	}
+	
+	
+	/**
+	 * @param offline True to serve the catalog as is without ever revalidating it; entries missing from it are still fetched once
+	 * @return This catalog
+	 */
+	public MetadataCatalog withOffline(boolean offline) {
+		this.offline = offline;
+		return this;
+	}
+	
+	
+	/**
+	 * @param duration How long an entry is served before being revalidated in the background
+	 * @param unit The unit of the duration
+	 * @return This catalog
+	 */
+	public MetadataCatalog withMaxAge(long duration, TimeUnit unit) {
+		this.maxAgeMillis = unit.toMillis(duration);
+		return this;
+	}
+	
+	
+	/**
+	 * @return The file backing this catalog
+	 */
+	public File file() {
+		return this.file;
+	}
+	
+	
+	/**
+	 * Returns the value stored under the key, fetching and storing it first if the catalog does not have it yet.
+	 * A stale value is returned as is, and replaced once a background fetch completes
+	 * @param key The key of the value
+	 * @param fetcher Fetches the value from Azure
+	 * @param codec Converts the value to and from the stored text
+	 * @return The value
+	 * @throws Exception
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String key, Snapshot.Loader<T> fetcher, Codec<T> codec) throws Exception {
+		Entry entry = this.entries().get(key);
+		if(entry == null) {
+			synchronized(this.fetchLocks.computeIfAbsent(key, k -> new Object())) {
+				entry = this.entries().get(key);
+				if(entry == null) {
+					return fetch(key, fetcher, codec);
+				}
+			}
+		}
+		
+		if(!this.offline && System.currentTimeMillis() - entry.fetchedAt >= this.maxAgeMillis && this.revalidating.add(key)) {
+			this.executorProvider.executor().execute(() -> {
+				try {
+					fetch(key, fetcher, codec);
+				} catch(Exception e) {
+					// Keep serving the stored value, to be revalidated again on a later call
+				} finally {
+					this.revalidating.remove(key);
+				}
+			});
+		}
+		
+		Object value = entry.value;
+		if(value == null) {
+			entry.value = value = codec.decode(entry.rows);
+		}
+		return (T) value;
+	}
+	
+	
+	// Fetches the value from Azure and stores it. Later calls are served the value decoded from what was stored rather than 
+	// the fetched value itself, so that data the codec leaves out, as too volatile to catalog, is not served from memory either
+	private <T> T fetch(String key, Snapshot.Loader<T> fetcher, Codec<T> codec) throws Exception {
+		final T value = fetcher.load();
+		final Entry entry = new Entry(System.currentTimeMillis(), new ArrayList<>(codec.encode(value)));
+		synchronized(this) {
+			this.entries().put(key, entry);
+			try {
+				save();
+			} catch(IOException e) {
+				// The value is still served from memory, and saved with the next update
+			}
+		}
+		return value;
+	}
+	
+	
+	// Returns the entries, loading them from disk the first time; a file in another format version is ignored
+	private Map<String, Entry> entries() throws IOException {
+		Map<String, Entry> entries = this.entries;
+		if(entries == null) {
+			synchronized(this) {
+				entries = this.entries;
+				if(entries == null) {
+					this.entries = entries = load(this.file);
+				}
+			}
+		}
+		return entries;
+	}
+	
+	
+	private static Map<String, Entry> load(File file) throws IOException {
+		final Map<String, Entry> entries = new ConcurrentHashMap<>();
+		if(!file.isFile()) {
+			return entries;
+		}
+		
+		try(BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			final String header = reader.readLine();
+			if(header == null || !header.equals(HEADER + "\t" + FORMAT_VERSION)) {
+				return entries;
+			}
+			
+			String line;
+			String key = null;
+			long fetchedAt = 0;
+			List<String[]> rows = null;
+			while((line = reader.readLine()) != null) {
+				final String[] fields = line.split("\t", -1);
+				if(fields[0].equals("K") && fields.length == 3) {
+					if(key != null) {
+						entries.put(key, new Entry(fetchedAt, rows));
+					}
+					key = unescape(fields[1]);
+					try {
+						fetchedAt = Long.parseLong(fields[2]);
+					} catch(NumberFormatException e) {
+						fetchedAt = 0;
+					}
+					rows = new ArrayList<>();
+				} else if(fields[0].equals("R") && rows != null) {
+					final String[] row = new String[fields.length - 1];
+					for(int i = 1; i < fields.length; i++) {
+						row[i - 1] = unescape(fields[i]);
+					}
+					rows.add(row);
+				}
+			}
+			
+			if(key != null) {
+				entries.put(key, new Entry(fetchedAt, rows));
+			}
+		}
+		
+		return entries;
+	}
+	
+	
+	// Writes the catalog to a temporary file first, then moves it over the catalog file so that readers never see a partial catalog
+	private synchronized void save() throws IOException {
+		final File directory = this.file.getAbsoluteFile().getParentFile();
+		if(directory != null) {
+			Files.createDirectories(directory.toPath());
+		}
+		
+		final File temp = File.createTempFile(this.file.getName(), ".tmp", directory);
+		try {
+			try(BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+				writer.write(HEADER + "\t" + FORMAT_VERSION);
+				writer.newLine();
+				for(Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+					writer.write(String.join("\t", "K", escape(entry.getKey()), String.valueOf(entry.getValue().fetchedAt)));
+					writer.newLine();
+					for(String[] row : entry.getValue().rows) {
+						writer.write('R');
+						for(String field : row) {
+							writer.write('\t');
+							writer.write(escape(field));
+						}
+						writer.newLine();
+					}
+				}
+			}
+			
+			Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+	
+	
+	// Escapes the characters that would break the line and field structure of the file
+	static String escape(String text) {
+		if(text == null) {
+			return NULL;
+		}
+		
+		final StringBuilder escaped = new StringBuilder(text.length());
+		for(int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			switch(c) {
+			case '\\': escaped.append("\\\\"); break;
+			case '\t': escaped.append("\\t"); break;
+			case '\n': escaped.append("\\n"); break;
+			case '\r': escaped.append("\\r"); break;
+			default: escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+	
+	
+	static String unescape(String text) {
+		if(text.equals(NULL)) {
+			return null;
+		} else if(text.indexOf('\\') < 0) {
+			return text;
+		}
+		
+		final StringBuilder unescaped = new StringBuilder(text.length());
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(c == '\\' && i + 1 < text.length()) {
+				c = text.charAt(++i);
+				switch(c) {
+				case 't': c = '\t'; break;
+				case 'n': c = '\n'; break;
+				case 'r': c = '\r'; break;
+				}
+			}
+			unescaped.append(c);
+		}
+		return unescaped.toString();
+	}
+	
+	
+	/**
+	 * @param items A list of strings, or null
+	 * @return The list as a single field
+	 */
+	public static String joinList(List<String> items) {
+		if(items == null) {
+			return null;
+		}
+		
+		final StringBuilder joined = new StringBuilder();
+		for(String item : items) {
+			if(joined.length() > 0) {
+				joined.append(LIST_SEPARATOR);
+			}
+			joined.append(item);
+		}
+		return joined.toString();
+	}
+	
+	
+	/**
+	 * @param field A field produced by joinList()
+	 * @return The list of strings, or null
+	 */
+	public static ArrayList<String> splitList(String field) {
+		if(field == null) {
+			return null;
+		} else if(field.isEmpty()) {
+			return new ArrayList<>();
+		} else {
+			return new ArrayList<>(Arrays.asList(field.split(String.valueOf(LIST_SEPARATOR), -1)));
+		}
+	}
+}
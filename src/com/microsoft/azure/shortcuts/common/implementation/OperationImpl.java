@@ -0,0 +1,100 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.shortcuts.common.Operation;
+
+// Operation handle backed by a future, completed by whichever poller tracks the operation
+public class OperationImpl<T> implements Operation<T> {
+	private final String target;
+	private final String verb;
+	private final CompletableFuture<T> future = new CompletableFuture<>();
+	
+	public OperationImpl(String target, String verb) {
+		this.target = target;
+		this.verb = verb;
+	}
+	
+	
+	// Returns an operation that already completed successfully
+	public static <T> OperationImpl<T> completed(String target, String verb, T result) {
+		OperationImpl<T> operation = new OperationImpl<>(target, verb);
+		operation.succeed(result);
+		return operation;
+	}
+	
+	
+	public boolean succeed(T result) {
+		return this.future.complete(result);
+	}
+	
+	
+	public boolean fail(Exception e) {
+		return this.future.completeExceptionally(e);
+	}
+	
+	
+	@Override
+	public String target() {
+		return this.target;
+	}
+
+	@Override
+	public String verb() {
+		return this.verb;
+	}
+
+	@Override
+	public boolean isDone() {
+		return this.future.isDone();
+	}
+
+	@Override
+	public CompletableFuture<T> future() {
+		return this.future;
+	}
+
+	@Override
+	public T await() throws Exception {
+		try {
+			return this.future.get();
+		} catch(ExecutionException e) {
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		}
+	}
+
+	@Override
+	public T await(long timeout, TimeUnit unit) throws Exception {
+		try {
+			return this.future.get(timeout, unit);
+		} catch(ExecutionException e) {
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return this.verb + " " + this.target;
+	}
+}
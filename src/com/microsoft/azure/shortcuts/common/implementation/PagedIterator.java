@@ -0,0 +1,98 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+// Iterates through the items of a paged listing, loading the next page only once the current one is exhausted,
+// so that only one page is held in memory at a time
+public class PagedIterator<PAGE, T> implements Iterator<T> {
+	// Loads the page at the specified next link, or the first page if the link is null
+	public interface PageLoader<PAGE> {
+		PAGE load(String nextLink) throws Exception;
+	}
+	
+	private final PageLoader<PAGE> loader;
+	private final Function<PAGE, List<T>> itemsOf;
+	private final Function<PAGE, String> nextLinkOf;
+	private Iterator<T> items = null;
+	private String nextLink = null;
+	
+	public PagedIterator(PageLoader<PAGE> loader, Function<PAGE, List<T>> itemsOf, Function<PAGE, String> nextLinkOf) {
+		this.loader = loader;
+		this.itemsOf = itemsOf;
+		this.nextLinkOf = nextLinkOf;
+	}
+	
+	
+	@Override
+	public boolean hasNext() {
+		while(this.items == null || !this.items.hasNext()) {
+			if(this.items != null && (this.nextLink == null || this.nextLink.isEmpty())) {
+				return false;
+			}
+			
+			final PAGE page;
+			try {
+				page = this.loader.load(this.nextLink);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException("Failed to load the next page", e);
+			}
+			
+			List<T> pageItems = (page != null) ? this.itemsOf.apply(page) : null;
+			this.items = (pageItems != null) ? pageItems.iterator() : Collections.<T>emptyIterator();
+			this.nextLink = (page != null) ? this.nextLinkOf.apply(page) : null;
+		}
+		
+		return true;
+	}
+
+	
+	@Override
+	public T next() {
+		if(!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		
+		return this.items.next();
+	}
+	
+	
+	// Returns an iterator wrapping each item of the specified iterator as it is reached
+	public static <T, W> Iterator<W> wrapping(final Iterator<T> iterator, final Function<T, W> wrapper) {
+		return new Iterator<W>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public W next() {
+				return wrapper.apply(iterator.next());
+			}
+		};
+	}
+}
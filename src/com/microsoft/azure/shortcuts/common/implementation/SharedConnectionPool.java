@@ -0,0 +1,79 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.Map;
+
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import com.microsoft.windowsazure.Configuration;
+import com.microsoft.windowsazure.core.pipeline.apache.ApacheConfigurationProperties;
+import com.microsoft.windowsazure.credentials.CertificateCloudCredentials;
+import com.microsoft.windowsazure.management.configuration.ManagementConfiguration;
+
+// Makes all the management clients created from the same configuration share one pool of HTTP connections
+public final class SharedConnectionPool {
+	public static final int DEFAULT_MAX_CONNECTIONS = 100;
+	
+	private SharedConnectionPool() {
+	}
+	
+	
+	/**
+	 * Installs a pooling connection manager on the configuration, unless one is already installed
+	 * @param configuration The configuration the management clients are created from
+	 * @return The configuration
+	 */
+	public static Configuration applyTo(Configuration configuration) {
+		final Map<String, Object> properties = configuration.getProperties();
+		synchronized(properties) {
+			if(properties.get(ApacheConfigurationProperties.PROPERTY_CONNECTION_MANAGER) != null) {
+				return configuration;
+			}
+			
+			// The connection manager takes precedence over the SSL socket factory the SDK would otherwise configure from
+			// management certificates, so let the certificate credentials contribute theirs to the pool up front
+			final Object credentials = properties.get(ManagementConfiguration.SUBSCRIPTION_CLOUD_CREDENTIALS);
+			if(credentials instanceof CertificateCloudCredentials) {
+				((CertificateCloudCredentials) credentials).applyConfig("", properties);
+			}
+			
+			final Object sslSocketFactory = properties.get(ApacheConfigurationProperties.PROPERTY_SSL_CONNECTION_SOCKET_FACTORY);
+			final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+				RegistryBuilder.<ConnectionSocketFactory>create()
+					.register("http", PlainConnectionSocketFactory.getSocketFactory())
+					.register("https", (sslSocketFactory instanceof LayeredConnectionSocketFactory) 
+						? (LayeredConnectionSocketFactory) sslSocketFactory 
+						: SSLConnectionSocketFactory.getSocketFactory())
+					.build());
+			
+			// All management calls go to the same few hosts, so allow each of them the whole pool
+			connectionManager.setMaxTotal(DEFAULT_MAX_CONNECTIONS);
+			connectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_CONNECTIONS);
+			configuration.setProperty(ApacheConfigurationProperties.PROPERTY_CONNECTION_MANAGER, connectionManager);
+			return configuration;
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+// Lets concurrent identical reads share a single call and its result. The first caller for a key makes the call,
+// callers arriving while it is in flight wait for its outcome, and callers arriving after it completed make a new one
+public class SingleFlight {
+	private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong coalesced = new AtomicLong();
+	
+	
+	/**
+	 * Makes the call, or joins the identical call already in flight
+	 * @param key The key identifying the call, compared case-insensitively
+	 * @param call The call
+	 * @return The result of the call, shared by all the callers that joined it
+	 * @throws Exception The exception the call failed with
+	 */
+	public <T> T call(String key, Callable<T> call) throws Exception {
+		return call(key, call, null);
+	}
+	
+	
+	/**
+	 * Makes the call, or joins the identical call already in flight, handing each caller its own copy of a mutable result
+	 * @param key The key identifying the call, compared case-insensitively
+	 * @param call The call
+	 * @param copier Makes a copy of the result, or null to share the result itself
+	 * @return The result of the call, or a copy of it for the callers that joined it
+	 * @throws Exception The exception the call failed with
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T call(String key, Callable<T> call, UnaryOperator<T> copier) throws Exception {
+		key = key.toLowerCase();
+		final CompletableFuture<Object> mine = new CompletableFuture<>();
+		final CompletableFuture<Object> leader = this.inFlight.putIfAbsent(key, mine);
+		if(leader != null) {
+			this.coalesced.incrementAndGet();
+			try {
+				final T shared = (T) leader.get();
+				return (copier != null) ? copier.apply(shared) : shared;
+			} catch(ExecutionException e) {
+				throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+			}
+		}
+		
+		try {
+			final T result = call.call();
+			
+			// The joiners copy from a copy of their own, since the caller may start changing the result as soon as it is returned
+			mine.complete((copier != null) ? copier.apply(result) : result);
+			return result;
+		} catch(Throwable e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			this.inFlight.remove(key, mine);
+		}
+	}
+	
+	
+	/**
+	 * Stops callers from joining the call in flight for the key, if any, so that the next caller makes a new one. 
+	 * To be called after a write, since a call that started before the write may return the state from before it
+	 * @param key The key identifying the call
+	 */
+	public void forget(String key) {
+		this.inFlight.remove(key.toLowerCase());
+	}
+	
+	
+	/**
+	 * Stops callers from joining any of the calls in flight
+	 */
+	public void forgetAll() {
+		this.inFlight.clear();
+	}
+	
+	
+	/**
+	 * @return The number of calls that joined a call already in flight instead of making their own
+	 */
+	public long coalesced() {
+		return this.coalesced.get();
+	}
+}
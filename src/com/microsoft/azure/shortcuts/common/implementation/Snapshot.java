@@ -0,0 +1,72 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.common.implementation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// Result of a listing shared by all the lookups made within a staleness window, with concurrent reloads coalesced into a single fetch.
+// Kept as the single entry of an entity cache
+public class Snapshot<T> {
+	public interface Loader<T> {
+		T load() throws Exception;
+	}
+	
+	private static final String KEY = "";
+	
+	private final Callable<T> loader;
+	private final EntityCache<T> cache;
+	
+	public Snapshot(final Loader<T> loader, long maxAgeMillis) {
+		this.loader = new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				return loader.load();
+			}
+		};
+		this.cache = new EntityCache<>(1, maxAgeMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	/**
+	 * @return The current snapshot, loading it first if there is none or it is older than the maximum age.
+	 * Callers arriving while a load is in progress wait for that load rather than starting their own
+	 * @throws Exception
+	 */
+	public T get() throws Exception {
+		return this.cache.get(KEY, this.loader);
+	}
+	
+	
+	/**
+	 * Discards the current snapshot, so that the next call to get() loads a new one rather than joining a load already in progress
+	 */
+	public void invalidate() {
+		this.cache.invalidateAll();
+	}
+	
+	
+	/**
+	 * @param maxAgeMillis How long a snapshot is used before being loaded again, or 0 to load it on every call
+	 */
+	public void setMaxAge(long maxAgeMillis) {
+		this.cache.setTimeToLive(maxAgeMillis, TimeUnit.MILLISECONDS);
+	}
+}
@@ -27,16 +27,20 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
@@ -174,11 +178,58 @@ public class Utils {
 	}
 	
 	
+	// Per-thread XML parsers, XPath evaluators and serializers, since their factories are costly to look up and they are not thread safe
+	private static final int MAX_COMPILED_XPATHS = 256;
+	private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = ThreadLocal.withInitial(() -> {
+		try {
+			return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+	private static final ThreadLocal<Transformer> TRANSFORMER = ThreadLocal.withInitial(() -> {
+		try {
+			return TransformerFactory.newInstance().newTransformer();
+		} catch (TransformerConfigurationException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+	private static final ThreadLocal<XPath> XPATH = ThreadLocal.withInitial(() -> XPathFactory.newInstance().newXPath());
+	private static final ThreadLocal<Map<String, XPathExpression>> COMPILED_XPATHS = ThreadLocal.withInitial(() -> 
+		new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+				return this.size() > MAX_COMPILED_XPATHS;
+			}
+		});
+	
+	
+	// Returns the compiled xpath expression, compiling it only the first time it is used on the current thread
+	static XPathExpression compileXPath(String xpath) throws XPathExpressionException {
+		final Map<String, XPathExpression> compiled = COMPILED_XPATHS.get();
+		XPathExpression expression = compiled.get(xpath);
+		if(expression == null) {
+			expression = XPATH.get().compile(xpath);
+			compiled.put(xpath, expression);
+		}
+		return expression;
+	}
+	
+	
 	// Returns the first node matching the xpath in the xml
 	static public Node findXMLNode(String xml, String xpath) throws XPathExpressionException {
-		final InputSource parentSource = new InputSource(new StringReader(xml));
-		final XPath xpathObject = XPathFactory.newInstance().newXPath();
-		return (Node) xpathObject.evaluate(xpath, parentSource, XPathConstants.NODE);
+		try {
+			return findXMLNode(parseXml(xml), xpath);
+		} catch (SAXException | IOException e) {
+			throw new XPathExpressionException(e);
+		}
+	}
+	
+	
+	// Returns the first node matching the xpath under an already parsed node
+	static public Node findXMLNode(Node context, String xpath) throws XPathExpressionException {
+		return (Node) compileXPath(xpath).evaluate(context, XPathConstants.NODE);
 	}
 	
 	
@@ -196,23 +247,39 @@ public class Utils {
 	
 	
 	// Returns the XML document as a string
-	static String XMLtoString(Document doc) {
+	public static String XMLtoString(Document doc) {
+		final Transformer transformer = TRANSFORMER.get();
 		try {
-			Transformer transformer = TransformerFactory.newInstance().newTransformer();
 			StringWriter writer = new StringWriter();
 			transformer.transform(new DOMSource(doc), new StreamResult(writer));
 			return writer.getBuffer().toString();
 		} catch(Exception e) {
 			return null;
+		} finally {
+			transformer.reset();
 		}
 	}
 	
 	
 	// Loads XML from a file
 	public static Document loadXml(File file) throws ParserConfigurationException, SAXException, IOException {
-		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder builder = factory.newDocumentBuilder();
-		return builder.parse(file);
+		final DocumentBuilder builder = DOCUMENT_BUILDER.get();
+		try {
+			return builder.parse(file);
+		} finally {
+			builder.reset();
+		}
+	}
+	
+	
+	// Parses XML from a string
+	public static Document parseXml(String xml) throws SAXException, IOException {
+		final DocumentBuilder builder = DOCUMENT_BUILDER.get();
+		try {
+			return builder.parse(new InputSource(new StringReader(xml)));
+		} finally {
+			builder.reset();
+		}
 	}
 	
 	
@@ -220,14 +287,13 @@ public class Utils {
 	public static String insertXMLElement(String parentXML, String childXMLElement, String parentXPath) {
 		try {
 			// Find parent node based on XPath
-			final Node parentNode = Utils.findXMLNode(parentXML, parentXPath);
+			final Document parentDoc = parseXml(parentXML);
+			final Node parentNode = findXMLNode(parentDoc, parentXPath);
 
 			// Parse child XML as Node to insert
-			final InputSource insertionSource = new InputSource(new StringReader(childXMLElement));
-			final Document childDoc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(insertionSource);
+			final Document childDoc = parseXml(childXMLElement);
 
 			// Insert as the last child of the parent
-			final Document parentDoc = parentNode.getOwnerDocument();
 			parentNode.appendChild(parentDoc.importNode(childDoc.getDocumentElement(), true));
 
 			// Transform into a string
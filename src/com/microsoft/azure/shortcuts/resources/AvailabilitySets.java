@@ -22,9 +22,12 @@ package com.microsoft.azure.shortcuts.resources;
 import com.microsoft.azure.shortcuts.common.SupportsCreating;
 import com.microsoft.azure.shortcuts.common.SupportsDeleting;
 import com.microsoft.azure.shortcuts.common.SupportsGetting;
+import com.microsoft.azure.shortcuts.common.SupportsBatchDeleting;
 import com.microsoft.azure.shortcuts.resources.common.SupportsDeletingByGroup;
 import com.microsoft.azure.shortcuts.resources.common.SupportsGettingByGroup;
 import com.microsoft.azure.shortcuts.resources.common.SupportsListingAsMapByGroup;
+import com.microsoft.azure.shortcuts.resources.common.SupportsStreaming;
+import com.microsoft.azure.shortcuts.resources.common.SupportsCaching;
 
 public interface AvailabilitySets extends 
 	SupportsListingAsMapByGroup<AvailabilitySet>,
@@ -32,5 +35,8 @@ public interface AvailabilitySets extends
 	SupportsGettingByGroup<AvailabilitySet>,
 	SupportsCreating<AvailabilitySet.DefinitionBlank>,
 	SupportsDeletingByGroup,
-	SupportsDeleting {
+	SupportsDeleting,
+	SupportsCaching,
+	SupportsStreaming<AvailabilitySet>,
+	SupportsBatchDeleting {
 }
@@ -0,0 +1,71 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.shortcuts.common.BatchResult;
+
+// Local index of the virtual machine images (publishers, offers and SKUs) available in each region, 
+// persisted on disk and answering lookups without calling Azure
+public interface ImageCatalog {
+	/**
+	 * @param file The file the index is loaded from and saved to, instead of the subscription's own index under .azure-shortcuts in the user's home directory
+	 * @return This catalog
+	 */
+	ImageCatalog withIndexFile(File file);
+	
+	/**
+	 * @param parallelism The maximum number of publishers crawled at once
+	 * @return This catalog
+	 */
+	ImageCatalog withParallelism(int parallelism);
+	
+	/**
+	 * @param maxAge How long the SKUs of a publisher whose offers have not changed are kept before they are crawled again
+	 * @param unit The unit of maxAge
+	 * @return This catalog
+	 */
+	ImageCatalog withMaxAge(long maxAge, TimeUnit unit);
+	
+	/**
+	 * Crawls the publishers, offers and SKUs of the specified regions, only crawling the SKUs of the publishers whose offers changed 
+	 * since the last crawl or that are older than the max age, and saves the index
+	 * @param regions The regions to crawl
+	 * @return The outcome of crawling each publisher, indexed by region and publisher name
+	 * @throws Exception
+	 */
+	BatchResult crawl(Region...regions) throws Exception;
+	
+	List<String> publishers(Region region) throws Exception;
+	List<String> offers(Region region, String publisher) throws Exception;
+	List<String> skus(Region region, String publisher, String offer) throws Exception;
+	
+	/**
+	 * @param region The region of the offer
+	 * @param publisher The name of the publisher
+	 * @param offer The name of the offer
+	 * @return The SKU with the highest version-like name, comparing numbers within names numerically, or null if the offer is not indexed
+	 * @throws Exception
+	 */
+	String latestSku(Region region, String publisher, String offer) throws Exception;
+}
@@ -23,9 +23,12 @@ import com.microsoft.azure.shortcuts.common.SupportsListingAsMap;
 import com.microsoft.azure.shortcuts.common.SupportsCreating;
 import com.microsoft.azure.shortcuts.common.SupportsDeleting;
 import com.microsoft.azure.shortcuts.common.SupportsGetting;
+import com.microsoft.azure.shortcuts.common.SupportsBatchDeleting;
 import com.microsoft.azure.shortcuts.resources.common.SupportsDeletingByGroup;
 import com.microsoft.azure.shortcuts.resources.common.SupportsGettingByGroup;
 import com.microsoft.azure.shortcuts.resources.common.SupportsListingAsMapByGroup;
+import com.microsoft.azure.shortcuts.resources.common.SupportsStreaming;
+import com.microsoft.azure.shortcuts.resources.common.SupportsCaching;
 
 public interface NetworkSecurityGroups extends 
 	SupportsListingAsMap<NetworkSecurityGroup>,
@@ -34,5 +37,8 @@ public interface NetworkSecurityGroups extends
 	SupportsGettingByGroup<NetworkSecurityGroup>,
 	SupportsCreating<NetworkSecurityGroup.DefinitionBlank>,
 	SupportsDeleting,
-	SupportsDeletingByGroup {
+	SupportsDeletingByGroup,
+	SupportsCaching,
+	SupportsStreaming<NetworkSecurityGroup>,
+	SupportsBatchDeleting {
 }
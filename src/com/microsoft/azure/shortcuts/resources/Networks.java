@@ -23,9 +23,12 @@ import com.microsoft.azure.shortcuts.common.SupportsListingAsMap;
 import com.microsoft.azure.shortcuts.common.SupportsCreating;
 import com.microsoft.azure.shortcuts.common.SupportsDeleting;
 import com.microsoft.azure.shortcuts.common.SupportsGetting;
+import com.microsoft.azure.shortcuts.common.SupportsBatchDeleting;
 import com.microsoft.azure.shortcuts.resources.common.SupportsDeletingByGroup;
 import com.microsoft.azure.shortcuts.resources.common.SupportsGettingByGroup;
 import com.microsoft.azure.shortcuts.resources.common.SupportsListingAsMapByGroup;
+import com.microsoft.azure.shortcuts.resources.common.SupportsStreaming;
+import com.microsoft.azure.shortcuts.resources.common.SupportsCaching;
 
 public interface Networks extends 
 	SupportsListingAsMap<Network>,
@@ -34,5 +37,8 @@ public interface Networks extends
 	SupportsGettingByGroup<Network>,
 	SupportsCreating<Network.DefinitionBlank>,
 	SupportsDeleting,
-	SupportsDeletingByGroup {
+	SupportsDeletingByGroup,
+	SupportsCaching,
+	SupportsStreaming<Network>,
+	SupportsBatchDeleting {
 }
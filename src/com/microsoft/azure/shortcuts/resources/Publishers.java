@@ -20,6 +20,7 @@
 package com.microsoft.azure.shortcuts.resources;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import com.microsoft.azure.shortcuts.common.SupportsGetting;
 
@@ -28,4 +29,18 @@ public interface Publishers extends
 	
 	Map<String, Publisher> asMap(Region region) throws Exception;
 	Publisher get(Region region, String name) throws Exception;
+	
+	/**
+	 * Sets how long the publishers of a region are indexed before being listed again from Azure
+	 * @param duration The time to live, or 0 to list them on every call
+	 * @param unit The unit of the duration
+	 * @return This collection
+	 */
+	Publishers withTimeToLive(long duration, TimeUnit unit);
+	
+	/**
+	 * Removes the indexed publishers of the region, so that they are listed again on the next call
+	 * @param region The region
+	 */
+	void invalidate(Region region);
 }
@@ -3,13 +3,17 @@ package com.microsoft.azure.shortcuts.resources;
 import com.microsoft.azure.shortcuts.common.SupportsDeleting;
 import com.microsoft.azure.shortcuts.common.SupportsListingAsMap;
 import com.microsoft.azure.shortcuts.common.SupportsGetting;
+import com.microsoft.azure.shortcuts.common.SupportsBatchDeleting;
 import com.microsoft.azure.shortcuts.resources.common.SupportsListingAsMapByGroup;
+import com.microsoft.azure.shortcuts.resources.common.SupportsStreaming;
 
 public interface Resources extends
 	SupportsListingAsMap<Resource>,
 	SupportsListingAsMapByGroup<Resource>,
 	SupportsGetting<Resource>,
-	SupportsDeleting {
+	SupportsDeleting,
+	SupportsStreaming<Resource>,
+	SupportsBatchDeleting {
 
 	/**
 	 * Gets a resource using its name, type, provider namespace and group name
@@ -29,6 +29,7 @@ import com.microsoft.azure.management.compute.models.NetworkInterfaceReference;
 import com.microsoft.azure.management.compute.models.VirtualMachineExtension;
 import com.microsoft.azure.shortcuts.common.Deletable;
 import com.microsoft.azure.shortcuts.common.Creatable;
+import com.microsoft.azure.shortcuts.common.Operation;
 import com.microsoft.azure.shortcuts.common.Refreshable;
 import com.microsoft.azure.shortcuts.common.Wrapper;
 import com.microsoft.azure.shortcuts.resources.common.DefinitionCombos;
@@ -96,6 +97,51 @@ public interface VirtualMachine extends
 	 * @throws Exception
 	 */
 	public VirtualMachine generalize() throws Exception;
+	
+	/**
+	 * Starts stopping (powering off) the virtual machine, without waiting for it to complete
+	 * @return The operation, tracked in the background by a poller shared across the subscription
+	 * @throws Exception
+	 */
+	public Operation<VirtualMachine> beginStop() throws Exception;
+	
+	/**
+	 * Starts restarting the virtual machine, without waiting for it to complete
+	 * @return The operation, tracked in the background by a poller shared across the subscription
+	 * @throws Exception
+	 */
+	public Operation<VirtualMachine> beginRestart() throws Exception;
+	
+	/**
+	 * Starts deallocating the virtual machine, without waiting for it to complete
+	 * @return The operation, tracked in the background by a poller shared across the subscription
+	 * @throws Exception
+	 */
+	public Operation<VirtualMachine> beginDeallocate() throws Exception;
+	
+	/**
+	 * Starts starting the virtual machine, without waiting for it to complete
+	 * @return The operation, tracked in the background by a poller shared across the subscription
+	 * @throws Exception
+	 */
+	public Operation<VirtualMachine> beginStart() throws Exception;
+	
+	/**
+	 * Starts capturing a virtual machine image based on this virtual machine, without waiting for it to complete
+	 * @param containerName The name of the container where to save the image
+	 * @param diskNamePrefix The prefix to use for the name of the virtual hard disk for the image
+	 * @param overwrite Determines whether to overwrite an existing image VHD, if any
+	 * @return The operation, tracked in the background by a poller shared across the subscription
+	 * @throws Exception
+	 */
+	public Operation<VirtualMachine> beginCapture(String containerName, String diskNamePrefix, boolean overwrite) throws Exception;
+	
+	/**
+	 * Sets the state of the virtual machine as generalized. Azure completes this right away, so the operation is already done.
+	 * @return The completed operation
+	 * @throws Exception
+	 */
+	public Operation<VirtualMachine> beginGeneralize() throws Exception;
 
 
 	public interface Definition extends 
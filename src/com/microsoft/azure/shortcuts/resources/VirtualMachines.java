@@ -1,12 +1,19 @@
 package com.microsoft.azure.shortcuts.resources;
 
+import java.util.Collection;
+import java.util.List;
+
+import com.microsoft.azure.shortcuts.common.BatchResult;
 import com.microsoft.azure.shortcuts.common.SupportsCreating;
 import com.microsoft.azure.shortcuts.common.SupportsDeleting;
 import com.microsoft.azure.shortcuts.common.SupportsGetting;
 import com.microsoft.azure.shortcuts.common.SupportsListingAsMap;
+import com.microsoft.azure.shortcuts.common.SupportsBatchDeleting;
 import com.microsoft.azure.shortcuts.resources.common.SupportsDeletingByGroup;
 import com.microsoft.azure.shortcuts.resources.common.SupportsGettingByGroup;
 import com.microsoft.azure.shortcuts.resources.common.SupportsListingAsMapByGroup;
+import com.microsoft.azure.shortcuts.resources.common.SupportsStreaming;
+import com.microsoft.azure.shortcuts.resources.common.SupportsCaching;
 
 public interface VirtualMachines extends
 	SupportsListingAsMap<VirtualMachine>,
@@ -15,4 +22,48 @@ public interface VirtualMachines extends
 	SupportsGettingByGroup<VirtualMachine>,
 	SupportsCreating<VirtualMachine.DefinitionBlank>, 
 	SupportsDeleting,
-	SupportsDeletingByGroup {}
+	SupportsDeletingByGroup,
+	SupportsCaching,
+	SupportsStreaming<VirtualMachine>,
+	SupportsBatchDeleting {
+	
+	/**
+	 * Starts the specified virtual machines, with a limited number of start operations in flight at once
+	 * @param ids The IDs of the virtual machines to start, such as the keys of asMap(groupName) or the result of idsTagged()
+	 * @param parallelism The maximum number of operations in flight at once
+	 * @return The outcome for each virtual machine
+	 * @throws Exception
+	 */
+	BatchResult startAll(Collection<String> ids, int parallelism) throws Exception;
+	BatchResult startAll(Collection<String> ids) throws Exception;
+	
+	/**
+	 * Stops (powers off) the specified virtual machines without deallocating them, with a limited number of stop operations in flight at once
+	 * @param ids The IDs of the virtual machines to stop, such as the keys of asMap(groupName) or the result of idsTagged()
+	 * @param parallelism The maximum number of operations in flight at once
+	 * @return The outcome for each virtual machine
+	 * @throws Exception
+	 */
+	BatchResult stopAll(Collection<String> ids, int parallelism) throws Exception;
+	BatchResult stopAll(Collection<String> ids) throws Exception;
+	
+	/**
+	 * Deallocates the specified virtual machines, with a limited number of deallocate operations in flight at once
+	 * @param ids The IDs of the virtual machines to deallocate, such as the keys of asMap(groupName) or the result of idsTagged()
+	 * @param parallelism The maximum number of operations in flight at once
+	 * @return The outcome for each virtual machine
+	 * @throws Exception
+	 */
+	BatchResult deallocateAll(Collection<String> ids, int parallelism) throws Exception;
+	BatchResult deallocateAll(Collection<String> ids) throws Exception;
+	
+	/**
+	 * Lists the IDs of the virtual machines carrying a tag
+	 * @param groupName The resource group to look in, or null for the whole subscription
+	 * @param tagName The name of the tag, matched case-insensitively
+	 * @param tagValue The value of the tag, or null to match any value
+	 * @return The IDs of the matching virtual machines
+	 * @throws Exception
+	 */
+	List<String> idsTagged(String groupName, String tagName, String tagValue) throws Exception;
+}
@@ -0,0 +1,39 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.common;
+
+import java.util.concurrent.TimeUnit;
+
+// Requires class to support an optional read-through cache of the entities it reads
+public interface SupportsCaching {
+	/**
+	 * Enables caching of the entities read through get() and asMap(), replacing any existing cache. 
+	 * Entities created, updated or deleted through this collection are evicted automatically, updated ones as soon as their first setter is called.
+	 * Entities returned from the cache are copies of the state last read, so call refresh() when the latest state is needed.
+	 * @param maxSize The maximum number of entries to keep, evicting the least recently used
+	 * @param timeToLive How long the entries remain valid
+	 * @param unit The unit of timeToLive
+	 */
+	void enableCache(int maxSize, long timeToLive, TimeUnit unit);
+	void disableCache();
+	void invalidateCache();
+	long cacheHits();
+	long cacheMisses();
+}
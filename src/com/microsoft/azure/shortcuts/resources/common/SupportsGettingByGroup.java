@@ -19,7 +19,16 @@
 */
 package com.microsoft.azure.shortcuts.resources.common;
 
+import java.util.concurrent.CompletableFuture;
+
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+
 // Requires class to support reading entities with a supplied group name
 public interface SupportsGettingByGroup<T> {
 	T get(String groupName, String name) throws Exception;
+	
+	// Runs get() on the executor of the client
+	default CompletableFuture<T> getAsync(final String groupName, final String name) {
+		return Async.run(this, () -> get(groupName, name));
+	}
 }
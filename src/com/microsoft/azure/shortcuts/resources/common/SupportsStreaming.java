@@ -0,0 +1,47 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.common;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Requires class to support iterating lazily through its entities, reading further pages of the listing only as they are reached
+public interface SupportsStreaming<T> {
+	/**
+	 * @param groupName The resource group to iterate through, or null for the entire subscription
+	 * @return An iterator wrapping the entities one at a time as they are reached
+	 */
+	Iterator<T> iterator(String groupName);
+	
+	default Iterator<T> iterator() {
+		return iterator(null);
+	}
+	
+	default Stream<T> stream(String groupName) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(groupName), Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+	
+	default Stream<T> stream() {
+		return stream(null);
+	}
+}
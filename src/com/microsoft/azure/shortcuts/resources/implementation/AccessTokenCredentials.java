@@ -0,0 +1,75 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Map;
+
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceRequestContext;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceRequestFilter;
+import com.microsoft.windowsazure.credentials.TokenCloudCredentials;
+
+// Token credentials reading the current token from an access token provider on every request, rather than capturing
+// the token once when each management client is created
+class AccessTokenCredentials extends TokenCloudCredentials {
+	private static final String AUTH_FILTERS = "AuthFilters";
+	private final AccessTokenProvider tokenProvider;
+	private final ServiceRequestFilter authFilter;
+	
+	AccessTokenCredentials(URI uri, String subscriptionId, AccessTokenProvider tokenProvider) {
+		super(uri, subscriptionId, null);
+		this.tokenProvider = tokenProvider;
+		this.authFilter = new ServiceRequestFilter() {
+			@Override
+			public void filter(ServiceRequestContext request) {
+				request.setHeader("Authorization", "Bearer " + getToken());
+			}
+		};
+	}
+	
+	
+	@Override
+	public String getToken() {
+		try {
+			return this.tokenProvider.accessToken();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException("Failed to acquire an access token", e);
+		}
+	}
+	
+	
+	@Override
+	public <T> void applyConfig(String profile, Map<String, Object> properties) {
+		// Every management client applies the credentials to the same shared properties, so only add the filter once
+		@SuppressWarnings("unchecked")
+		ArrayList<Object> filters = (ArrayList<Object>) properties.get(AUTH_FILTERS);
+		if(filters == null) {
+			filters = new ArrayList<>();
+			properties.put(AUTH_FILTERS, filters);
+		}
+		
+		if(!filters.contains(this.authFilter)) {
+			filters.add(this.authFilter);
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.ServiceUnavailableException;
+
+import com.microsoft.aad.adal4j.AuthenticationResult;
+import com.microsoft.azure.utility.AuthHelper;
+
+// Keeps an AAD access token for a service principal current, refreshing it in the background ahead of its expiration 
+// so that requests do not wait on AAD. One provider is shared by all the subscriptions authenticated as the same principal and key,
+// and it stops refreshing once none of them has asked for a token for a while.
+public final class AccessTokenProvider {
+	public static final long DEFAULT_REFRESH_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	public static final long DEFAULT_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+	public static final long MIN_REFRESH_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+	public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+	
+	private static final ConcurrentHashMap<Key, AccessTokenProvider> PROVIDERS = new ConcurrentHashMap<>();
+	private static final ScheduledExecutorService REFRESHER = createRefresher();
+
+	private final String resource;
+	private final String authority;
+	private final String tenantId;
+	private final String clientId;
+	private final String clientKey;
+	private final Key key;
+	private volatile Token token = null;
+	private volatile long lastUsedAt = System.currentTimeMillis();
+	private ScheduledFuture<?> pendingRefresh = null;
+	
+	// The current token and when it stops being usable
+	private static class Token {
+		final String accessToken;
+		final long expiresAt;
+		Token(String accessToken, long expiresAt) {
+			this.accessToken = accessToken;
+			this.expiresAt = expiresAt;
+		}
+	}
+	
+	// Identifies a principal's tokens for a given resource, including a hash of the key so that a rotated key gets its own provider
+	private static class Key {
+		final String authority, tenantId, clientId, clientKeyHash, resource;
+		Key(String authority, String tenantId, String clientId, String clientKey, String resource) {
+			this.authority = authority;
+			this.tenantId = tenantId;
+			this.clientId = clientId;
+			this.clientKeyHash = hash(clientKey);
+			this.resource = resource;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			
+			Key k = (Key) o;
+			return Objects.equals(authority, k.authority) 
+				&& Objects.equals(tenantId, k.tenantId) 
+				&& Objects.equals(clientId, k.clientId) 
+				&& Objects.equals(clientKeyHash, k.clientKeyHash) 
+				&& Objects.equals(resource, k.resource);
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hash(authority, tenantId, clientId, clientKeyHash, resource);
+		}
+		
+		private static String hash(String clientKey) {
+			if(clientKey == null) {
+				return null;
+			}
+			
+			try {
+				byte[] digest = MessageDigest.getInstance("SHA-256").digest(clientKey.getBytes(StandardCharsets.UTF_8));
+				return Base64.getEncoder().encodeToString(digest);
+			} catch(NoSuchAlgorithmException e) {
+				// Every Java platform is required to support SHA-256
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	
+	private AccessTokenProvider(Key key, String resource, String authority, String tenantId, String clientId, String clientKey) {
+		this.key = key;
+		this.resource = resource;
+		this.authority = authority;
+		this.tenantId = tenantId;
+		this.clientId = clientId;
+		this.clientKey = clientKey;
+	}
+	
+	
+	/**
+	 * Returns the token provider shared by everyone authenticating as the specified service principal against the specified resource,
+	 * acquiring the first token if needed
+	 * @param resource The URI of the resource the tokens are for
+	 * @param authority The URL of the AAD authority
+	 * @param tenantId The tenant the service principal belongs to
+	 * @param clientId The client ID of the service principal
+	 * @param clientKey The key of the service principal
+	 * @return The token provider
+	 */
+	public static AccessTokenProvider of(String resource, String authority, String tenantId, String clientId, String clientKey) 
+			throws ServiceUnavailableException, ExecutionException, InterruptedException, IOException {
+		AccessTokenProvider provider = PROVIDERS.computeIfAbsent(
+			new Key(authority, tenantId, clientId, clientKey, resource), 
+			k -> new AccessTokenProvider(k, resource, authority, tenantId, clientId, clientKey));
+		provider.accessToken();
+		return provider;
+	}
+	
+	
+	/**
+	 * Returns the current access token without contacting AAD, unless no token has been acquired yet or the current one 
+	 * has already expired because background refreshes kept failing
+	 * @return The access token
+	 */
+	public String accessToken() throws ServiceUnavailableException, ExecutionException, InterruptedException, IOException {
+		this.lastUsedAt = System.currentTimeMillis();
+		Token current = this.token;
+		if(current != null && current.expiresAt > System.currentTimeMillis()) {
+			return current.accessToken;
+		}
+		
+		synchronized(this) {
+			current = this.token;
+			if(current == null || current.expiresAt <= System.currentTimeMillis()) {
+				current = this.acquire();
+			}
+			
+			return current.accessToken;
+		}
+	}
+	
+	
+	// Acquires a new token from AAD and schedules its refresh
+	private synchronized Token acquire() throws ServiceUnavailableException, ExecutionException, InterruptedException, IOException {
+		AuthenticationResult result = AuthHelper.getAccessTokenFromServicePrincipalCredentials(
+			this.resource, 
+			this.authority,
+			this.tenantId, 
+			this.clientId, 
+			this.clientKey);
+		
+		Date expiresOn = result.getExpiresOnDate();
+		long expiresAt = (expiresOn != null) ? expiresOn.getTime() : System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1);
+		Token fresh = new Token(result.getAccessToken(), expiresAt);
+		this.token = fresh;
+		this.scheduleRefresh(refreshDelay(expiresAt - System.currentTimeMillis()));
+		return fresh;
+	}
+	
+	
+	// Refreshes ahead of the expiration by the refresh margin, but never before half the remaining lifetime has passed nor sooner
+	// than the minimum delay, so that short lived tokens or a local clock running ahead do not make it refresh in a tight loop
+	static long refreshDelay(long remainingMillis) {
+		long delay = Math.max(remainingMillis - DEFAULT_REFRESH_MARGIN_MILLIS, remainingMillis / 2);
+		return Math.max(delay, MIN_REFRESH_DELAY_MILLIS);
+	}
+	
+	
+	// Refreshes the token in the background after the specified delay, retrying on failure while the current token is still usable.
+	// A provider that has not been asked for a token within the idle timeout is dropped instead, ending its refreshes
+	private synchronized void scheduleRefresh(long delayMillis) {
+		if(this.pendingRefresh != null) {
+			this.pendingRefresh.cancel(false);
+		}
+		
+		this.pendingRefresh = REFRESHER.schedule(() -> {
+			if(System.currentTimeMillis() - this.lastUsedAt > DEFAULT_IDLE_TIMEOUT_MILLIS) {
+				// Whoever still holds the provider acquires a token synchronously on its next request, restarting the refreshes
+				PROVIDERS.remove(this.key, this);
+				return;
+			}
+			
+			try {
+				this.acquire();
+			} catch(Exception e) {
+				// Keep serving the current token and try again later; callers acquire synchronously once it has expired
+				Token current = this.token;
+				if(current != null && current.expiresAt > System.currentTimeMillis()) {
+					this.scheduleRefresh(DEFAULT_RETRY_DELAY_MILLIS);
+				}
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	
+	private static ScheduledExecutorService createRefresher() {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "azure-shortcuts-token-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		return executor;
+	}
+}
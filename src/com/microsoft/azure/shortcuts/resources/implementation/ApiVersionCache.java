@@ -0,0 +1,137 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.shortcuts.resources.Provider;
+
+// Caches the latest API versions of the resource types of each provider, so that generic resource operations
+// do not need to look up the provider from Azure on every call
+public class ApiVersionCache {
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+	
+	private final Subscription subscription;
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private volatile long ttlMillis = DEFAULT_TTL_MILLIS;
+	
+	ApiVersionCache(Subscription subscription) {
+		this.subscription = subscription;
+	}
+	
+	
+	// Latest API versions of the resource types of one provider, keyed by lower case type name
+	private static class Entry {
+		private final Map<String, String> apiVersions;
+		private final long expiresAt;
+		
+		private Entry(Map<String, String> apiVersions, long expiresAt) {
+			this.apiVersions = apiVersions;
+			this.expiresAt = expiresAt;
+		}
+		
+		private boolean isExpired() {
+			return System.currentTimeMillis() >= this.expiresAt;
+		}
+	}
+	
+	
+	/**
+	 * Sets how long the API versions of a provider are trusted before being fetched again from Azure
+	 * @param duration The time to live, or 0 to disable caching
+	 * @param unit The unit of the duration
+	 * @return This cache
+	 */
+	public ApiVersionCache withTimeToLive(long duration, TimeUnit unit) {
+		this.ttlMillis = unit.toMillis(duration);
+		return this;
+	}
+	
+	
+	/**
+	 * Returns the latest API version of the specified resource type, fetching the provider from Azure only if it is not 
+	 * already cached or its cache entry has expired
+	 * @param provider The namespace of the resource provider
+	 * @param type The name of the resource type within the provider
+	 * @return The latest API version, or null if the provider does not expose the resource type
+	 * @throws Exception
+	 */
+	public String latestApiVersion(String provider, String type) throws Exception {
+		if(provider == null || type == null) {
+			return null;
+		}
+		
+		Entry entry = this.entries.get(provider.toLowerCase());
+		if(entry == null || entry.isExpired()) {
+			entry = this.load(this.subscription.providers().get(provider));
+		}
+		
+		return entry.apiVersions.get(type.toLowerCase());
+	}
+	
+	
+	/**
+	 * Populates the cache for all the providers in the subscription using a single listing call
+	 * @return This cache
+	 * @throws Exception
+	 */
+	public ApiVersionCache warmUp() throws Exception {
+		for(Provider provider : this.subscription.providers().asMap().values()) {
+			this.load(provider);
+		}
+		return this;
+	}
+	
+	
+	/**
+	 * Removes the cached API versions of the specified provider
+	 * @param provider The namespace of the resource provider
+	 */
+	public void invalidate(String provider) {
+		if(provider != null) {
+			this.entries.remove(provider.toLowerCase());
+		}
+	}
+	
+	
+	/**
+	 * Removes all the cached API versions
+	 */
+	public void invalidateAll() {
+		this.entries.clear();
+	}
+	
+	
+	// Caches the latest API versions of all the resource types of the provided provider
+	private Entry load(Provider provider) throws Exception {
+		HashMap<String, String> apiVersions = new HashMap<>();
+		for(Provider.ResourceType resourceType : provider.resourceTypes().values()) {
+			apiVersions.put(resourceType.id().toLowerCase(), resourceType.latestApiVersion());
+		}
+		
+		Entry entry = new Entry(Collections.unmodifiableMap(apiVersions), System.currentTimeMillis() + this.ttlMillis);
+		this.entries.put(provider.id().toLowerCase(), entry);
+		return entry;
+	}
+}
@@ -76,8 +76,8 @@ class AvailabilitySetImpl
 	@Override
 	public AvailabilitySetImpl refresh() throws Exception {
 		this.setInner(this.collection.getNativeEntity(
-			ResourcesImpl.groupFromResourceId(this.id()), 
-			ResourcesImpl.nameFromResourceId(this.id())));
+			this.resourceId().resourceGroup(), 
+			this.resourceId().name()));
 		return this;
 	}
 	
@@ -86,6 +86,7 @@ class AvailabilitySetImpl
 	public AvailabilitySet create() throws Exception {
 		ensureGroup(); // Create group if needed
 		this.subscription().computeManagementClient().getAvailabilitySetsOperations().createOrUpdate(this.groupName, this.inner());
+		this.collection.invalidate(this.groupName, this.name());
 		return this.subscription().availabilitySets().get(this.groupName, this.name());
 	}
 }
@@ -37,7 +37,7 @@ public class AvailabilitySetsImpl
 	}
 	
 	@Override
-	public void delete(String groupName, String name) throws Exception {
+	protected void deleteNativeEntity(String groupName, String name) throws Exception {
 		subscription.computeManagementClient().getAvailabilitySetsOperations().delete(groupName, name);
 	}
 	
@@ -0,0 +1,109 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import com.microsoft.azure.shortcuts.common.SupportsDeleting;
+import com.microsoft.azure.shortcuts.common.implementation.BatchResultImpl;
+import com.microsoft.azure.shortcuts.common.implementation.BoundedSubmitter;
+import com.microsoft.azure.shortcuts.resources.implementation.ResourcesImpl.RESOURCE_ID;
+
+// Deletes batches of resources concurrently, in waves ordered so that resources are deleted before the resources they depend on
+final class BatchDeleter {
+	static final int DEFAULT_PARALLELISM = 10;
+	
+	// The wave in which each type of resource is deleted, keyed by lower case provider namespace and type.
+	// Types not listed here are deleted in the last wave
+	private static final Map<String, Integer> WAVES = new HashMap<>();
+	private static final int LAST_WAVE = 5;
+	static {
+		WAVES.put("microsoft.compute/virtualmachines", 0);
+		WAVES.put("microsoft.network/networkinterfaces", 1);
+		WAVES.put("microsoft.network/loadbalancers", 2);
+		WAVES.put("microsoft.compute/availabilitysets", 2);
+		WAVES.put("microsoft.network/publicipaddresses", 3);
+		WAVES.put("microsoft.network/virtualnetworks", 3);
+		WAVES.put("microsoft.storage/storageaccounts", 3);
+		WAVES.put("microsoft.network/networksecuritygroups", 4);
+	}
+	
+	private BatchDeleter() {
+	}
+	
+	
+	/**
+	 * Deletes the resources with the specified IDs
+	 * @param ids The IDs of the resources to delete
+	 * @param deleter The collection deleting each resource
+	 * @param executor The executor to run the deletions on
+	 * @param parallelism The maximum number of deletions in progress at once
+	 * @return The outcome for each resource
+	 * @throws InterruptedException
+	 */
+	static BatchResultImpl deleteAll(Collection<String> ids, final SupportsDeleting deleter, Executor executor, int parallelism) throws InterruptedException {
+		final BatchResultImpl result = new BatchResultImpl();
+		final TreeMap<Integer, List<String>> waves = new TreeMap<>();
+		for(String id : new LinkedHashSet<>(ids)) {
+			Integer wave = WAVES.get((RESOURCE_ID.PROVIDER.from(id) + "/" + RESOURCE_ID.TYPE.from(id)).toLowerCase());
+			waves.computeIfAbsent((wave != null) ? wave : LAST_WAVE, w -> new ArrayList<String>()).add(id);
+		}
+		
+		if(waves.isEmpty()) {
+			return result;
+		}
+		
+		// Each wave starts once all the deletions of the previous one are complete
+		final BoundedSubmitter submitter = new BoundedSubmitter(executor, parallelism);
+		for(List<String> wave : waves.values()) {
+			final Map<String, Future<Void>> deletions = new HashMap<>();
+			for(final String id : wave) {
+				deletions.put(id, submitter.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						deleter.delete(id);
+						return null;
+					}
+				}));
+			}
+			
+			for(String id : wave) {
+				try {
+					deletions.get(id).get();
+					result.recordSuccess(id);
+				} catch(ExecutionException e) {
+					result.recordFailure(id, (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e);
+				}
+			}
+		}
+		
+		return result;
+	}
+}
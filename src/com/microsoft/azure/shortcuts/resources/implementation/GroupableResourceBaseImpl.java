@@ -48,7 +48,8 @@ public abstract class GroupableResourceBaseImpl<
 	
 	@Override 
 	final public String resourceGroup() {
-		String groupNameTemp = ResourcesImpl.groupFromResourceId(this.id());
+		ResourceId resourceId = this.resourceId();
+		String groupNameTemp = (resourceId != null) ? resourceId.resourceGroup() : null;
 		return (groupNameTemp == null) ? this.groupName : groupNameTemp;
 	}
 	
@@ -19,30 +19,55 @@
 */
 package com.microsoft.azure.shortcuts.resources.implementation;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import com.microsoft.azure.shortcuts.common.BatchResult;
+import com.microsoft.azure.shortcuts.common.SupportsBatchDeleting;
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+import com.microsoft.azure.shortcuts.common.implementation.DeepCopy;
+import com.microsoft.azure.shortcuts.common.implementation.EntityCache;
+import com.microsoft.azure.shortcuts.common.implementation.PagedIterator;
+import com.microsoft.azure.shortcuts.resources.common.SupportsCaching;
+import com.microsoft.azure.shortcuts.resources.common.SupportsStreaming;
 import com.microsoft.windowsazure.core.ResourceBaseExtended;
 
 public abstract class GroupableResourcesBaseImpl<
 		WRAPPER, 
 		INNER extends ResourceBaseExtended,
-		WRAPPERIMPL extends WRAPPER> extends ArmEntitiesImpl {
+		WRAPPERIMPL extends WRAPPER> extends ArmEntitiesImpl implements SupportsCaching, SupportsStreaming<WRAPPER>, SupportsBatchDeleting {
+	
+	// Caches of single entities keyed by group and name, and of listings keyed by group, when enabled. The cached entities 
+	// are never handed out, since wrappers edit their inner object in place, so each wrapper gets its own copy instead
+	private volatile EntityCache<INNER> entityCache = null;
+	private volatile EntityCache<List<INNER>> listCache = null;
+	
 	protected GroupableResourcesBaseImpl(Subscription subscription) {
 		super(subscription);
 	}
 	
 	abstract List<INNER> getNativeEntities(String group) throws Exception;
 	abstract INNER getNativeEntity(String group, String name) throws Exception;
+	abstract void deleteNativeEntity(String group, String name) throws Exception;
 	abstract WRAPPERIMPL wrap(INNER nativeItem);
 	
-	public abstract void delete(String groupName, String name) throws Exception;
+	// Returns a lazy iterator through the native entities, by default loading the whole listing once the first one is needed;
+	// collections whose listings are paged override this to follow the next page links as they are reached
+	Iterator<INNER> getNativeEntitiesIterator(final String group) {
+		return new PagedIterator<List<INNER>, INNER>(
+			nextLink -> getNativeEntities(group), 
+			page -> page, 
+			page -> null);
+	}
 	
 	public final Map<String, WRAPPER> asMap(String groupName) throws Exception {
 		HashMap<String, WRAPPER> wrappers = new HashMap<>();
-		for(INNER nativeItem : getNativeEntities(groupName)) {
+		for(INNER nativeItem : getCachedNativeEntities(groupName)) {
 			wrappers.put(nativeItem.getId(), wrap(nativeItem));
 		}
 		return Collections.unmodifiableMap(wrappers);
@@ -52,8 +77,13 @@ public abstract class GroupableResourcesBaseImpl<
 		return asMap(null);
 	}
 	
+	@Override
+	public final Iterator<WRAPPER> iterator(String groupName) {
+		return PagedIterator.wrapping(getNativeEntitiesIterator(groupName), nativeItem -> wrap(nativeItem));
+	}
+	
 	public final WRAPPER get(String groupName, String name) throws Exception {
-		return wrap(getNativeEntity(groupName, name));
+		return wrap(getCachedNativeEntity(groupName, name));
 	}
 	
 	public final WRAPPER get(String id) throws Exception {
@@ -62,9 +92,159 @@ public abstract class GroupableResourcesBaseImpl<
 			ResourcesImpl.nameFromResourceId(id));
 	}
 	
+	public final void delete(String groupName, String name) throws Exception {
+		try {
+			deleteNativeEntity(groupName, name);
+		} finally {
+			invalidate(groupName, name);
+		}
+	}
+	
 	public final void delete(String id) throws Exception {
 		this.delete(
 			ResourcesImpl.groupFromResourceId(id), 
 			ResourcesImpl.nameFromResourceId(id));
 	}
+	
+	@Override
+	public final BatchResult deleteAll(Collection<String> ids, int parallelism) throws Exception {
+		return BatchDeleter.deleteAll(ids, id -> this.delete(id), Async.executorOf(subscription), parallelism);
+	}
+	
+	@Override
+	public final BatchResult deleteAll(Collection<String> ids) throws Exception {
+		return deleteAll(ids, BatchDeleter.DEFAULT_PARALLELISM);
+	}
+	
+	
+	/***************************************************
+	 * Caching
+	 ***************************************************/
+	
+	@Override
+	public void enableCache(int maxSize, long timeToLive, TimeUnit unit) {
+		this.entityCache = new EntityCache<>(maxSize, timeToLive, unit);
+		this.listCache = new EntityCache<>(maxSize, timeToLive, unit);
+	}
+	
+	@Override
+	public void disableCache() {
+		this.entityCache = null;
+		this.listCache = null;
+	}
+	
+	@Override
+	public void invalidateCache() {
+		EntityCache<INNER> entities = this.entityCache;
+		EntityCache<List<INNER>> lists = this.listCache;
+		if(entities != null) {
+			entities.invalidateAll();
+		}
+		if(lists != null) {
+			lists.invalidateAll();
+		}
+	}
+	
+	@Override
+	public long cacheHits() {
+		EntityCache<INNER> entities = this.entityCache;
+		EntityCache<List<INNER>> lists = this.listCache;
+		return ((entities != null) ? entities.hits() : 0) + ((lists != null) ? lists.hits() : 0);
+	}
+	
+	@Override
+	public long cacheMisses() {
+		EntityCache<INNER> entities = this.entityCache;
+		EntityCache<List<INNER>> lists = this.listCache;
+		return ((entities != null) ? entities.misses() : 0) + ((lists != null) ? lists.misses() : 0);
+	}
+	
+	// Evicts the specified entity and any listing that may include it, to be called when it starts being written to and after
+	final void invalidate(String groupName, String name) {
+		if(subscription != null) {
+			subscription.forgetInFlight(entityFlightKey(groupName, name), listFlightKey(groupName), listFlightKey(null));
+		}
+		EntityCache<INNER> entities = this.entityCache;
+		EntityCache<List<INNER>> lists = this.listCache;
+		if(entities != null) {
+			entities.invalidate(entityKey(groupName, name));
+		}
+		if(lists != null) {
+			lists.invalidateAll();
+		}
+	}
+	
+	private INNER getCachedNativeEntity(String groupName, String name) throws Exception {
+		EntityCache<INNER> entities = this.entityCache;
+		if(entities == null) {
+			return getCoalescedNativeEntity(groupName, name);
+		}
+		
+		String key = entityKey(groupName, name);
+		INNER nativeItem = entities.get(key);
+		if(nativeItem != null) {
+			return DeepCopy.of(nativeItem);
+		}
+		
+		final long generation = entities.generation();
+		nativeItem = getCoalescedNativeEntity(groupName, name);
+		entities.putIfCurrent(key, DeepCopy.of(nativeItem), generation);
+		return nativeItem;
+	}
+	
+	// Concurrent reads of the same entity share one call, unless the collection is not bound to a subscription, like the benchmark stubs
+	private INNER getCoalescedNativeEntity(String groupName, String name) throws Exception {
+		return (subscription != null) 
+			? subscription.coalesce(entityFlightKey(groupName, name), () -> getNativeEntity(groupName, name)) 
+			: getNativeEntity(groupName, name);
+	}
+	
+	// Concurrent listings of the same group share one call
+	private List<INNER> getCoalescedNativeEntities(String groupName) throws Exception {
+		return (subscription != null) 
+			? subscription.coalesce(listFlightKey(groupName), () -> getNativeEntities(groupName)) 
+			: getNativeEntities(groupName);
+	}
+	
+	private String entityFlightKey(String groupName, String name) {
+		return this.getClass().getName() + "/" + entityKey(groupName, name);
+	}
+	
+	private String listFlightKey(String groupName) {
+		return this.getClass().getName() + "/" + groupName + "/*";
+	}
+	
+	private List<INNER> getCachedNativeEntities(String groupName) throws Exception {
+		EntityCache<List<INNER>> lists = this.listCache;
+		if(lists == null) {
+			return getCoalescedNativeEntities(groupName);
+		}
+		
+		String key = (groupName != null) ? groupName : "";
+		List<INNER> nativeItems = lists.get(key);
+		if(nativeItems != null) {
+			return DeepCopy.of(nativeItems);
+		}
+		
+		EntityCache<INNER> entities = this.entityCache;
+		final long listGeneration = lists.generation();
+		final long entityGeneration = (entities != null) ? entities.generation() : 0;
+		nativeItems = getCoalescedNativeEntities(groupName);
+		final List<INNER> cachedItems = DeepCopy.of(nativeItems);
+		lists.putIfCurrent(key, cachedItems, listGeneration);
+		
+		// Listings also warm up the single entity lookups, sharing the cached copies since neither cache hands them out
+		if(entities != null) {
+			for(INNER cachedItem : cachedItems) {
+				entities.putIfCurrent(entityKey(
+					ResourcesImpl.groupFromResourceId(cachedItem.getId()), 
+					ResourcesImpl.nameFromResourceId(cachedItem.getId())), cachedItem, entityGeneration);
+			}
+		}
+		return nativeItems;
+	}
+	
+	private static String entityKey(String groupName, String name) {
+		return groupName + "/" + name;
+	}
 }
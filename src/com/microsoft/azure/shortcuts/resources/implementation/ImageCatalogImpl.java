@@ -0,0 +1,443 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.management.compute.models.VirtualMachineImageListOffersParameters;
+import com.microsoft.azure.management.compute.models.VirtualMachineImageListPublishersParameters;
+import com.microsoft.azure.management.compute.models.VirtualMachineImageListSkusParameters;
+import com.microsoft.azure.management.compute.models.VirtualMachineImageResource;
+import com.microsoft.azure.shortcuts.common.BatchResult;
+import com.microsoft.azure.shortcuts.common.implementation.BatchResultImpl;
+import com.microsoft.azure.shortcuts.common.implementation.BoundedSubmitter;
+import com.microsoft.azure.shortcuts.resources.ImageCatalog;
+import com.microsoft.azure.shortcuts.resources.Region;
+
+// Crawls the VM image catalog of regions into an in-memory index keyed by lower case names, persisted as tab separated lines:
+// P <region> <publisher> <crawl time>
+// O <region> <publisher> <offer> <sku>|<sku>|...
+class ImageCatalogImpl implements ImageCatalog {
+	static final int DEFAULT_PARALLELISM = 16;
+	static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+	
+	private final Subscription subscription;
+	private volatile File indexFile;
+	private volatile int parallelism = DEFAULT_PARALLELISM;
+	private volatile long maxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+	
+	// The publishers of each region, each region's map being replaced as a whole when crawled; null until loaded
+	private volatile ConcurrentHashMap<Region, Map<String, PublisherEntry>> index = null;
+	
+	// Orders names by their text, comparing runs of digits numerically, so that 14.04.10 comes after 14.04.2
+	static final Comparator<String> VERSION_ORDER = new Comparator<String>() {
+		@Override
+		public int compare(String a, String b) {
+			int i = 0, j = 0;
+			while(i < a.length() && j < b.length()) {
+				char ca = a.charAt(i), cb = b.charAt(j);
+				if(Character.isDigit(ca) && Character.isDigit(cb)) {
+					int si = i, sj = j;
+					while(i < a.length() && a.charAt(i) == '0') i++;
+					while(j < b.length() && b.charAt(j) == '0') j++;
+					int ni = i, nj = j;
+					while(i < a.length() && Character.isDigit(a.charAt(i))) i++;
+					while(j < b.length() && Character.isDigit(b.charAt(j))) j++;
+					int c = Integer.compare(i - ni, j - nj);
+					if(c == 0) {
+						c = a.substring(ni, i).compareTo(b.substring(nj, j));
+					}
+					if(c == 0) {
+						c = Integer.compare(i - si, j - sj);
+					}
+					if(c != 0) {
+						return c;
+					}
+				} else {
+					int c = Character.compare(Character.toLowerCase(ca), Character.toLowerCase(cb));
+					if(c != 0) {
+						return c;
+					}
+					i++;
+					j++;
+				}
+			}
+			return Integer.compare(a.length() - i, b.length() - j);
+		}
+	};
+	
+	private static class OfferEntry {
+		final String name;
+		final List<String> skus;
+		final String latestSku;
+		
+		OfferEntry(String name, List<String> skus) {
+			this.name = name;
+			this.skus = Collections.unmodifiableList(new ArrayList<>(skus));
+			this.latestSku = skus.isEmpty() ? null : Collections.max(skus, VERSION_ORDER);
+		}
+	}
+	
+	private static class PublisherEntry {
+		final String name;
+		final long crawledAt;
+		final Map<String, OfferEntry> offers;
+		
+		PublisherEntry(String name, long crawledAt, Map<String, OfferEntry> offers) {
+			this.name = name;
+			this.crawledAt = crawledAt;
+			this.offers = Collections.unmodifiableMap(offers);
+		}
+	}
+	
+	
+	ImageCatalogImpl(Subscription subscription) {
+		this.subscription = subscription;
+		
+		// The images available can differ between subscriptions, so each gets its own index by default
+		this.indexFile = new File(new File(System.getProperty("user.home"), ".azure-shortcuts"), 
+			String.format("image-catalog-%s.tsv", subscription.subscriptionId()));
+	}
+	
+	
+	/***********************************************************
+	 * Setters
+	 ***********************************************************/
+	
+	@Override
+	public synchronized ImageCatalogImpl withIndexFile(File file) {
+		this.indexFile = file;
+		this.index = null;
+		return this;
+	}
+
+	@Override
+	public ImageCatalogImpl withParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+		return this;
+	}
+
+	@Override
+	public ImageCatalogImpl withMaxAge(long maxAge, TimeUnit unit) {
+		this.maxAgeMillis = unit.toMillis(maxAge);
+		return this;
+	}
+	
+	
+	/***********************************************************
+	 * Getters
+	 ***********************************************************/
+	
+	@Override
+	public List<String> publishers(Region region) throws Exception {
+		List<String> names = new ArrayList<>();
+		for(PublisherEntry publisher : this.publisherEntries(region).values()) {
+			names.add(publisher.name);
+		}
+		return names;
+	}
+
+	@Override
+	public List<String> offers(Region region, String publisher) throws Exception {
+		List<String> names = new ArrayList<>();
+		PublisherEntry publisherEntry = this.publisherEntries(region).get(publisher.toLowerCase());
+		if(publisherEntry != null) {
+			for(OfferEntry offer : publisherEntry.offers.values()) {
+				names.add(offer.name);
+			}
+		}
+		return names;
+	}
+
+	@Override
+	public List<String> skus(Region region, String publisher, String offer) throws Exception {
+		OfferEntry offerEntry = this.offerEntry(region, publisher, offer);
+		return (offerEntry != null) ? offerEntry.skus : Collections.<String>emptyList();
+	}
+
+	@Override
+	public String latestSku(Region region, String publisher, String offer) throws Exception {
+		OfferEntry offerEntry = this.offerEntry(region, publisher, offer);
+		return (offerEntry != null) ? offerEntry.latestSku : null;
+	}
+	
+	
+	/***********************************************************
+	 * Verbs
+	 ***********************************************************/
+	
+	@Override
+	public BatchResult crawl(Region...regions) throws Exception {
+		final ConcurrentHashMap<Region, Map<String, PublisherEntry>> index = this.index();
+		final BatchResultImpl result = new BatchResultImpl();
+		if(regions.length == 0) {
+			return result;
+		}
+		
+		// The crawl runs on the executor of the subscription, with at most the configured number of calls in flight
+		final BoundedSubmitter submitter = new BoundedSubmitter(this.subscription.executor(), this.parallelism);
+		
+		// List the publishers of all the regions concurrently
+		final LinkedHashMap<Region, Future<List<VirtualMachineImageResource>>> listings = new LinkedHashMap<>();
+		for(final Region region : regions) {
+			listings.put(region, submitter.submit(() -> listPublishers(region)));
+		}
+		
+		// Then crawl the offers and SKUs of each publisher of each region concurrently
+		final LinkedHashMap<Region, Map<String, Future<PublisherEntry>>> crawls = new LinkedHashMap<>();
+		for(Entry<Region, Future<List<VirtualMachineImageResource>>> listing : listings.entrySet()) {
+			final Region region = listing.getKey();
+			final List<VirtualMachineImageResource> nativePublishers;
+			try {
+				nativePublishers = listing.getValue().get();
+			} catch(ExecutionException e) {
+				result.recordFailure(region.toString(), causeOf(e));
+				continue;
+			}
+			
+			final Map<String, PublisherEntry> previous = this.publisherEntries(region);
+			final LinkedHashMap<String, Future<PublisherEntry>> publisherCrawls = new LinkedHashMap<>();
+			for(VirtualMachineImageResource nativePublisher : nativePublishers) {
+				final String name = nativePublisher.getName();
+				final PublisherEntry previousEntry = previous.get(name.toLowerCase());
+				publisherCrawls.put(name, submitter.submit(() -> crawlPublisher(region, name, previousEntry)));
+			}
+			crawls.put(region, publisherCrawls);
+		}
+		
+		for(Entry<Region, Map<String, Future<PublisherEntry>>> regionCrawls : crawls.entrySet()) {
+			final Region region = regionCrawls.getKey();
+			final Map<String, PublisherEntry> previous = this.publisherEntries(region);
+			final HashMap<String, PublisherEntry> publishers = new HashMap<>();
+			for(Entry<String, Future<PublisherEntry>> publisherCrawl : regionCrawls.getValue().entrySet()) {
+				final String key = publisherCrawl.getKey().toLowerCase();
+				final String id = region.toString() + "/" + publisherCrawl.getKey();
+				try {
+					publishers.put(key, publisherCrawl.getValue().get());
+					result.recordSuccess(id);
+				} catch(ExecutionException e) {
+					// Keep what was known about the publisher
+					if(previous.containsKey(key)) {
+						publishers.put(key, previous.get(key));
+					}
+					result.recordFailure(id, causeOf(e));
+				}
+			}
+			
+			index.put(region, Collections.unmodifiableMap(publishers));
+		}
+		
+		this.save(index);
+		return result;
+	}
+	
+	
+	/***********************************************************
+	 * Helpers
+	 ***********************************************************/
+	
+	// Crawls the offers of a publisher, keeping the indexed SKUs only if the publisher was crawled within the max age 
+	// and still has the same offers. A publisher whose offers changed since the last crawl has the SKUs of all its offers listed again, 
+	// since offers are published alongside new SKUs of the existing ones
+	private PublisherEntry crawlPublisher(Region region, String publisher, PublisherEntry previous) throws Exception {
+		final long now = System.currentTimeMillis();
+		final List<VirtualMachineImageResource> nativeOffers = listOffers(region, publisher);
+		final HashSet<String> offerKeys = new HashSet<>();
+		for(VirtualMachineImageResource nativeOffer : nativeOffers) {
+			offerKeys.add(nativeOffer.getName().toLowerCase());
+		}
+		
+		final boolean isUnchanged = (previous != null) 
+			&& (now - previous.crawledAt < this.maxAgeMillis) 
+			&& offerKeys.equals(previous.offers.keySet());
+		final HashMap<String, OfferEntry> offers = new HashMap<>();
+		for(VirtualMachineImageResource nativeOffer : nativeOffers) {
+			final String offer = nativeOffer.getName();
+			if(isUnchanged) {
+				offers.put(offer.toLowerCase(), previous.offers.get(offer.toLowerCase()));
+			} else {
+				final List<String> skus = new ArrayList<>();
+				for(VirtualMachineImageResource nativeSku : listSkus(region, publisher, offer)) {
+					skus.add(nativeSku.getName());
+				}
+				offers.put(offer.toLowerCase(), new OfferEntry(offer, skus));
+			}
+		}
+		
+		return new PublisherEntry(publisher, isUnchanged ? previous.crawledAt : now, offers);
+	}
+
+	
+	private List<VirtualMachineImageResource> listPublishers(Region region) throws Exception {
+		VirtualMachineImageListPublishersParameters params = new VirtualMachineImageListPublishersParameters();
+		params.setLocation(region.toString());
+		return this.subscription.computeManagementClient().getVirtualMachineImagesOperations().listPublishers(params).getResources();
+	}
+
+	
+	private List<VirtualMachineImageResource> listOffers(Region region, String publisher) throws Exception {
+		VirtualMachineImageListOffersParameters params = new VirtualMachineImageListOffersParameters();
+		params.setLocation(region.toString());
+		params.setPublisherName(publisher);
+		return this.subscription.computeManagementClient().getVirtualMachineImagesOperations().listOffers(params).getResources();
+	}
+
+	
+	private List<VirtualMachineImageResource> listSkus(Region region, String publisher, String offer) throws Exception {
+		VirtualMachineImageListSkusParameters params = new VirtualMachineImageListSkusParameters();
+		params.setLocation(region.toString());
+		params.setPublisherName(publisher);
+		params.setOffer(offer);
+		return this.subscription.computeManagementClient().getVirtualMachineImagesOperations().listSkus(params).getResources();
+	}
+	
+	
+	private static Exception causeOf(ExecutionException e) {
+		return (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+	}
+	
+	
+	private OfferEntry offerEntry(Region region, String publisher, String offer) throws IOException {
+		PublisherEntry publisherEntry = this.publisherEntries(region).get(publisher.toLowerCase());
+		return (publisherEntry != null) ? publisherEntry.offers.get(offer.toLowerCase()) : null;
+	}
+	
+	
+	private Map<String, PublisherEntry> publisherEntries(Region region) throws IOException {
+		Map<String, PublisherEntry> publishers = this.index().get(region);
+		return (publishers != null) ? publishers : Collections.<String, PublisherEntry>emptyMap();
+	}
+	
+	
+	// Returns the index, loading it from disk the first time
+	private ConcurrentHashMap<Region, Map<String, PublisherEntry>> index() throws IOException {
+		ConcurrentHashMap<Region, Map<String, PublisherEntry>> index = this.index;
+		if(index == null) {
+			synchronized(this) {
+				index = this.index;
+				if(index == null) {
+					this.index = index = load(this.indexFile);
+				}
+			}
+		}
+		return index;
+	}
+	
+	
+	private static ConcurrentHashMap<Region, Map<String, PublisherEntry>> load(File file) throws IOException {
+		final HashMap<Region, HashMap<String, String[]>> publisherLines = new HashMap<>();
+		final HashMap<Region, HashMap<String, HashMap<String, OfferEntry>>> offers = new HashMap<>();
+		if(file.isFile()) {
+			try(BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+				String line;
+				while((line = reader.readLine()) != null) {
+					final String[] fields = line.split("\t", -1);
+					final Region region = (fields.length > 2) ? Region.fromName(fields[1]) : null;
+					if(region == null) {
+						continue;
+					} else if(fields[0].equals("P") && fields.length == 4) {
+						publisherLines.computeIfAbsent(region, r -> new HashMap<>()).put(fields[2].toLowerCase(), fields);
+					} else if(fields[0].equals("O") && fields.length == 5) {
+						final ArrayList<String> skus = new ArrayList<>();
+						for(String sku : fields[4].split("\\|")) {
+							if(!sku.isEmpty()) {
+								skus.add(sku);
+							}
+						}
+						offers.computeIfAbsent(region, r -> new HashMap<>())
+							.computeIfAbsent(fields[2].toLowerCase(), p -> new HashMap<>())
+							.put(fields[3].toLowerCase(), new OfferEntry(fields[3], skus));
+					}
+				}
+			}
+		}
+		
+		final ConcurrentHashMap<Region, Map<String, PublisherEntry>> index = new ConcurrentHashMap<>();
+		for(Entry<Region, HashMap<String, String[]>> region : publisherLines.entrySet()) {
+			final HashMap<String, PublisherEntry> publishers = new HashMap<>();
+			final HashMap<String, HashMap<String, OfferEntry>> regionOffers = offers.get(region.getKey());
+			for(Entry<String, String[]> publisher : region.getValue().entrySet()) {
+				final HashMap<String, OfferEntry> publisherOffers = (regionOffers != null) ? regionOffers.get(publisher.getKey()) : null;
+				long crawledAt;
+				try {
+					crawledAt = Long.parseLong(publisher.getValue()[3]);
+				} catch(NumberFormatException e) {
+					crawledAt = 0;
+				}
+				publishers.put(publisher.getKey(), new PublisherEntry(
+					publisher.getValue()[2], 
+					crawledAt, 
+					(publisherOffers != null) ? publisherOffers : new HashMap<String, OfferEntry>()));
+			}
+			index.put(region.getKey(), Collections.unmodifiableMap(publishers));
+		}
+		
+		return index;
+	}
+	
+	
+	// Writes the index to a temporary file first, then moves it over the index file so that readers never see a partial index
+	private synchronized void save(Map<Region, Map<String, PublisherEntry>> index) throws IOException {
+		final File file = this.indexFile;
+		final File directory = file.getAbsoluteFile().getParentFile();
+		if(directory != null) {
+			Files.createDirectories(directory.toPath());
+		}
+		
+		final File temp = File.createTempFile(file.getName(), ".tmp", directory);
+		try {
+			try(BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+				for(Entry<Region, Map<String, PublisherEntry>> region : index.entrySet()) {
+					for(PublisherEntry publisher : region.getValue().values()) {
+						writer.write(String.join("\t", "P", region.getKey().toString(), publisher.name, String.valueOf(publisher.crawledAt)));
+						writer.newLine();
+						for(OfferEntry offer : publisher.offers.values()) {
+							writer.write(String.join("\t", "O", region.getKey().toString(), publisher.name, offer.name, String.join("|", offer.skus)));
+							writer.newLine();
+						}
+					}
+				}
+			}
+			
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+	}
+}
@@ -75,14 +75,15 @@ class LoadBalancerImpl
 		ipConfig.setName(this.name());
 		
 		this.subscription().networkManagementClient().getLoadBalancersOperations().createOrUpdate(this.groupName, this.name(), this.inner());
+		this.collection.invalidate(this.groupName, this.name());
 		return this.subscription().loadBalancers().get(this.groupName, this.name());
 	}
 	
 	@Override
 	public LoadBalancerImpl refresh() throws Exception {
 		this.setInner(this.collection.getNativeEntity(
-				ResourcesImpl.groupFromResourceId(this.id()), 
-				ResourcesImpl.nameFromResourceId(this.id())));
+				this.resourceId().resourceGroup(), 
+				this.resourceId().name()));
 		return this;
 	}
 }
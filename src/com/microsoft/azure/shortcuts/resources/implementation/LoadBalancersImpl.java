@@ -44,7 +44,7 @@ public class LoadBalancersImpl
 	}
 
 	@Override
-	public void delete(String groupName, String name) throws Exception {
+	protected void deleteNativeEntity(String groupName, String name) throws Exception {
 		subscription.networkManagementClient().getLoadBalancersOperations().delete(groupName, name);
 	}
 
@@ -87,6 +87,7 @@ class NetworkImpl
 	
 	@Override
 	public NetworkImpl withDnsServer(String ipAddress) {
+		this.startUpdate();
 		this.inner().getDhcpOptions().getDnsServers().add(ipAddress);
 		return this;
 	}
@@ -95,6 +96,7 @@ class NetworkImpl
 	public NetworkImpl withSubnet(String name, String cidr) {
 		com.microsoft.azure.management.network.models.Subnet azureSubnet = new com.microsoft.azure.management.network.models.Subnet(cidr);
 		azureSubnet.setName(name);
+		this.startUpdate();
 		this.inner().getSubnets().add(azureSubnet);
 		return this;
 	}
@@ -104,6 +106,7 @@ class NetworkImpl
 	public NetworkImpl withSubnets(Map<String, String> nameCidrPairs) {
 		ArrayList<com.microsoft.azure.management.network.models.Subnet> azureSubnets = 
 			new ArrayList<com.microsoft.azure.management.network.models.Subnet>();
+		this.startUpdate();
 		this.inner().setSubnets(azureSubnets);
 		for(Entry<String, String> pair : nameCidrPairs.entrySet()) {
 			this.withSubnet(pair.getKey(), pair.getValue());
@@ -144,14 +147,15 @@ class NetworkImpl
 		}
 		
 		this.subscription().networkManagementClient().getVirtualNetworksOperations().createOrUpdate(this.groupName, this.name(), this.inner());
+		this.collection.invalidate(this.groupName, this.name());
 		return this.subscription().networks().get(this.groupName, this.name());	
 	}
 	
 	@Override
 	public NetworkImpl refresh() throws Exception {
 		this.setInner(this.collection.getNativeEntity(
-				ResourcesImpl.groupFromResourceId(this.id()), 
-				ResourcesImpl.nameFromResourceId(this.id())));
+				this.resourceId().resourceGroup(), 
+				this.resourceId().name()));
 		return this;
 	}
 
@@ -113,6 +113,7 @@ class NetworkInterfaceImpl
 	public DefinitionCreatable withExistingNetworkSecurityGroup(String id) {
 		this.isExistingNSG = true;
 		this.nsgId = id;
+		this.startUpdate();
 		ResourceId resourceId = new ResourceId();
 		resourceId.setId(id);
 		this.inner().setNetworkSecurityGroup(resourceId);
@@ -178,14 +179,15 @@ class NetworkInterfaceImpl
 		}
 		
 		this.subscription().networkManagementClient().getNetworkInterfacesOperations().createOrUpdate(this.groupName, this.name(), this.inner());
+		this.collection.invalidate(this.groupName, this.name());
 		return this.subscription().networkInterfaces().get(this.groupName, this.name());
 	}
 	
 	@Override
 	public NetworkInterfaceImpl refresh() throws Exception {
 		this.setInner(this.collection.getNativeEntity(
-			ResourcesImpl.groupFromResourceId(this.id()), 
-			ResourcesImpl.nameFromResourceId(this.id())));
+			this.resourceId().resourceGroup(), 
+			this.resourceId().name()));
 		return this;
 	}
 
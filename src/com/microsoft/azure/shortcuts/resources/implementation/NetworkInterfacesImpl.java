@@ -52,7 +52,7 @@ public class NetworkInterfacesImpl
 	}
 
 	@Override
-	public void delete(String groupName, String name) throws Exception {
+	protected void deleteNativeEntity(String groupName, String name) throws Exception {
 		subscription.networkManagementClient().getNetworkInterfacesOperations().delete(groupName, name);
 	}
 
@@ -62,14 +62,15 @@ class NetworkSecurityGroupImpl
 		ensureGroup();
 	
 		this.subscription().networkManagementClient().getNetworkSecurityGroupsOperations().createOrUpdate(this.groupName, this.name(), this.inner());
+		this.collection.invalidate(this.groupName, this.name());
 		return this.subscription().networkSecurityGroups().get(this.groupName, this.name());
 	}
 	
 	@Override
 	public NetworkSecurityGroup refresh() throws Exception {
 		this.setInner(this.collection.getNativeEntity(
-				ResourcesImpl.groupFromResourceId(this.id()), 
-				ResourcesImpl.nameFromResourceId(this.id())));
+				this.resourceId().resourceGroup(), 
+				this.resourceId().name()));
 		return this;
 	}
 	
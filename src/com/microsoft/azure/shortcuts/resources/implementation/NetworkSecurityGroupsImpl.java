@@ -47,7 +47,7 @@ public class NetworkSecurityGroupsImpl
 	}
 
 	@Override
-	public void delete(String groupName, String name) throws Exception {
+	protected void deleteNativeEntity(String groupName, String name) throws Exception {
 		subscription.networkManagementClient().getNetworkSecurityGroupsOperations().delete(groupName, name);
 	}
 
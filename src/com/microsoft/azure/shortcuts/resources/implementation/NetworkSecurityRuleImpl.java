@@ -178,6 +178,7 @@ class NetworkSecurityRuleImpl
 
 	@Override
 	public NetworkSecurityGroupImpl attach() throws Exception {
+		this.parent().startUpdate();
 		this.parent().inner().getSecurityRules().add(this.inner());
 		return this.parent();
 	}
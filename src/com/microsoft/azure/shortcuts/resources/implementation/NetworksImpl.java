@@ -62,7 +62,7 @@ public class NetworksImpl
 	}
 
 	@Override
-	public void delete(String groupName, String name) throws Exception {
+	protected void deleteNativeEntity(String groupName, String name) throws Exception {
 		subscription.networkManagementClient().getVirtualNetworksOperations().delete(groupName, name);
 	}
 
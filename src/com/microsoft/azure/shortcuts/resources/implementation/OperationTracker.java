@@ -0,0 +1,189 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.microsoft.azure.management.compute.models.ComputeLongRunningOperationResponse;
+import com.microsoft.azure.management.compute.models.ComputeOperationStatus;
+import com.microsoft.azure.shortcuts.common.Operation;
+import com.microsoft.azure.shortcuts.common.implementation.OperationImpl;
+import com.microsoft.windowsazure.exception.ServiceException;
+
+// Tracks long-running compute operations with a few shared poller threads, so that no thread waits on any one operation.
+// The pollers never sleep: a poll the throttling governor holds back, or that ARM throttled, is rescheduled instead
+class OperationTracker {
+	private static final int POLLER_THREADS = 4;
+	private static final long MIN_DELAY_MILLIS = 1000;
+	private static final long MAX_DELAY_MILLIS = 30000;
+	private static final int MAX_POLL_FAILURES = 5;
+	
+	private final Subscription subscription;
+	private final ScheduledThreadPoolExecutor scheduler;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	
+	OperationTracker(Subscription subscription) {
+		this.subscription = subscription;
+		
+		// Daemon threads, started on demand, so that operations still in flight do not keep the process alive 
+		this.scheduler = new ScheduledThreadPoolExecutor(POLLER_THREADS, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "azure-shortcuts-operations-" + this.count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.scheduler.setRemoveOnCancelPolicy(true);
+	}
+	
+	
+	// Starts tracking an operation Azure accepted, given the URL reporting its status and the delay Azure asked for before polling it.
+	// If there is no status URL, the operation already completed.
+	<T> Operation<T> track(String target, String verb, String statusUrl, int retryAfterSeconds, T result) {
+		final OperationImpl<T> operation = new OperationImpl<>(target, verb);
+		if(statusUrl == null) {
+			operation.succeed(result);
+			return operation;
+		}
+		
+		this.inFlight.incrementAndGet();
+		operation.future().whenComplete((r, e) -> this.inFlight.decrementAndGet());
+		this.schedule(new Poll<T>(operation, statusUrl, result), delayMillis(retryAfterSeconds, 0));
+		return operation;
+	}
+	
+	
+	// Returns the number of operations being tracked
+	int inFlight() {
+		return this.inFlight.get();
+	}
+	
+	
+	// Uses the delay requested by Azure if any, else backs off exponentially with the number of polls so far, 
+	// with some jitter so that operations started together do not keep polling together
+	private static long delayMillis(int retryAfterSeconds, int polls) {
+		if(retryAfterSeconds > 0) {
+			return TimeUnit.SECONDS.toMillis(retryAfterSeconds);
+		}
+		
+		final long delay = Math.min(MAX_DELAY_MILLIS, MIN_DELAY_MILLIS << Math.min(polls, 5));
+		return delay - delay / 10 + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+	}
+	
+	
+	private static boolean isThrottled(Exception e) {
+		if(e instanceof ServiceException) {
+			final int status = ((ServiceException) e).getHttpStatusCode();
+			return status == 429 || status == 503;
+		} else {
+			return false;
+		}
+	}
+	
+	
+	// Throttling, server errors and network errors are worth another poll, other errors are not
+	private static boolean isTransient(Exception e) {
+		if(e instanceof ServiceException) {
+			final int status = ((ServiceException) e).getHttpStatusCode();
+			return status == 429 || status >= 500 || status <= 0;
+		} else {
+			return true;
+		}
+	}
+	
+	
+	private void schedule(Poll<?> poll, long delayMillis) {
+		try {
+			this.scheduler.schedule(poll, delayMillis, TimeUnit.MILLISECONDS);
+		} catch(RejectedExecutionException e) {
+			poll.operation.fail(e);
+		}
+	}
+	
+	
+	// Polls the status of one operation, rescheduling itself until the operation completes
+	private class Poll<T> implements Runnable {
+		private final OperationImpl<T> operation;
+		private final String statusUrl;
+		private final T result;
+		private int polls = 0;
+		private int failures = 0;
+		private boolean paced = false;
+		
+		private Poll(OperationImpl<T> operation, String statusUrl, T result) {
+			this.operation = operation;
+			this.statusUrl = statusUrl;
+			this.result = result;
+		}
+		
+		@Override
+		public void run() {
+			if(this.operation.isDone()) {
+				// Cancelled by the caller
+				return;
+			}
+			
+			// Wait for the read slot reserved from the governor, including any Retry-After it was told about, by coming back later
+			if(!this.paced) {
+				final long wait = subscription.governor().reserveRead();
+				if(wait > 0) {
+					this.paced = true;
+					schedule(this, wait);
+					return;
+				}
+			}
+			this.paced = false;
+			
+			final ComputeLongRunningOperationResponse response;
+			try {
+				response = subscription.computeStatusClient().getLongRunningOperationStatus(this.statusUrl);
+			} catch(Exception e) {
+				if(isThrottled(e)) {
+					// Not a failure of the operation; the governor holds back the next poll for as long as ARM asked
+					schedule(this, delayMillis(0, ++this.polls));
+				} else if(++this.failures >= MAX_POLL_FAILURES || !isTransient(e)) {
+					this.operation.fail(e);
+				} else {
+					schedule(this, delayMillis(0, ++this.polls));
+				}
+				return;
+			}
+			
+			this.failures = 0;
+			final ComputeOperationStatus status = response.getStatus();
+			if(status == null || ComputeOperationStatus.InProgress.equals(status)) {
+				schedule(this, delayMillis(response.getRetryAfter(), ++this.polls));
+			} else if(ComputeOperationStatus.Succeeded.equals(status)) {
+				this.operation.succeed(this.result);
+			} else {
+				this.operation.fail(new Exception(String.format("Operation '%s' ended with status %s%s", 
+					this.operation, status, (response.getError() != null) ? ": " + response.getError().getMessage() : "")));
+			}
+		}
+	}
+}
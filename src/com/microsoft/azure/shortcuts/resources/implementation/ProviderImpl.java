@@ -24,8 +24,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import com.microsoft.azure.management.resources.models.ProviderResourceType;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableImpl;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableRefreshableWrapperImpl;
 import com.microsoft.azure.shortcuts.resources.Provider;
@@ -35,7 +37,8 @@ class ProviderImpl
 	extends
 		IndexableRefreshableWrapperImpl<Provider, com.microsoft.azure.management.resources.models.Provider>
 	implements 
-		Provider {
+		Provider,
+		ExecutorProvider {
 	
 	private final ArmEntitiesImpl collection;
 	
@@ -58,8 +61,18 @@ class ProviderImpl
 	 * @throws Exception 
 	 ***********************************************************/		
 
+	@Override
+	public Executor executor() {
+		return this.collection.executor();
+	}
+	
+
 	@Override
 	public String registrationState() throws Exception {
+		// Providers served from the metadata catalog do not carry their registration state, so read it live
+		if(this.inner().getRegistrationState() == null) {
+			this.refresh();
+		}
 		return this.inner().getRegistrationState();
 	}
 	
@@ -87,6 +100,7 @@ class ProviderImpl
 		implements Provider.ResourceType {
 
 		final private ProviderResourceType azureResourceType;
+		private volatile String latestApiVersion;
 		
 		private ResourceTypeImpl(ProviderResourceType azureResourceType) {
 			super(azureResourceType.getName());
@@ -100,16 +114,18 @@ class ProviderImpl
 
 		@Override
 		public String latestApiVersion() {
-			// Assume the collection is sorted in ascending order
-			ArrayList<String> versions = azureResourceType.getApiVersions();
-			if(versions == null || versions.isEmpty()) {
-				return null;
-			} else if(versions.size() == 1) {
-				return versions.get(0);
-			} else {
-				Collections.sort(versions);
-				return versions.get(versions.size() -1);
+			// Pick the highest version without sorting, and remember it since the inner list does not change.
+			// Threads racing to compute it compute the same value, so the volatile field needs no lock
+			String latest = this.latestApiVersion;
+			if(latest == null) {
+				ArrayList<String> versions = azureResourceType.getApiVersions();
+				if(versions == null || versions.isEmpty()) {
+					return null;
+				} else {
+					this.latestApiVersion = latest = Collections.max(versions);
+				}
 			}
+			return latest;
 		}
 	}
 	
@@ -22,8 +22,11 @@ package com.microsoft.azure.shortcuts.resources.implementation;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import com.microsoft.azure.management.resources.models.ProviderResourceType;
+import com.microsoft.azure.shortcuts.common.implementation.MetadataCatalog;
 import com.microsoft.azure.shortcuts.resources.Provider;
 import com.microsoft.azure.shortcuts.resources.Providers;
 
@@ -57,8 +60,56 @@ public class ProvidersImpl
 	}
 
 
-	// Get providers from Azure
-	private static ArrayList<com.microsoft.azure.management.resources.models.Provider> getNativeEntities(Subscription azure) throws Exception {
-		return azure.resourceManagementClient().getProvidersOperations().list(null).getProviders();		
+	// Get providers from the metadata catalog or from Azure
+	private static List<com.microsoft.azure.management.resources.models.Provider> getNativeEntities(Subscription azure) throws Exception {
+		return azure.metadata("arm/providers", 
+			() -> azure.resourceManagementClient().getProvidersOperations().list(null).getProviders(), 
+			PROVIDERS_CODEC);
 	}
+	
+	
+	// Stores each provider as a row with its namespace, followed by a row per resource type with its name, locations and API versions.
+	// The registration state changes as the subscription registers providers, so it is not catalogued but read live when asked for
+	private static final MetadataCatalog.Codec<List<com.microsoft.azure.management.resources.models.Provider>> PROVIDERS_CODEC = 
+		new MetadataCatalog.Codec<List<com.microsoft.azure.management.resources.models.Provider>>() {
+		
+		@Override
+		public List<String[]> encode(List<com.microsoft.azure.management.resources.models.Provider> providers) {
+			List<String[]> rows = new ArrayList<>();
+			for(com.microsoft.azure.management.resources.models.Provider provider : providers) {
+				rows.add(new String[] { "P", provider.getNamespace() });
+				if(provider.getResourceTypes() != null) {
+					for(ProviderResourceType type : provider.getResourceTypes()) {
+						rows.add(new String[] { 
+							"T", 
+							type.getName(), 
+							MetadataCatalog.joinList(type.getLocations()), 
+							MetadataCatalog.joinList(type.getApiVersions()) });
+					}
+				}
+			}
+			return rows;
+		}
+		
+		@Override
+		public List<com.microsoft.azure.management.resources.models.Provider> decode(List<String[]> rows) {
+			List<com.microsoft.azure.management.resources.models.Provider> providers = new ArrayList<>();
+			com.microsoft.azure.management.resources.models.Provider provider = null;
+			for(String[] row : rows) {
+				if(row[0].equals("P")) {
+					provider = new com.microsoft.azure.management.resources.models.Provider();
+					provider.setNamespace(row[1]);
+					provider.setResourceTypes(new ArrayList<ProviderResourceType>());
+					providers.add(provider);
+				} else if(row[0].equals("T") && provider != null) {
+					ProviderResourceType type = new ProviderResourceType();
+					type.setName(row[1]);
+					type.setLocations(MetadataCatalog.splitList(row[2]));
+					type.setApiVersions(MetadataCatalog.splitList(row[3]));
+					provider.getResourceTypes().add(type);
+				}
+			}
+			return providers;
+		}
+	};
 }
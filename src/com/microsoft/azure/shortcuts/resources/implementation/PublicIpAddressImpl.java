@@ -66,12 +66,14 @@ class PublicIpAddressImpl
 	
 	@Override
 	public PublicIpAddressImpl withStaticIp() {
+		this.startUpdate();
 		this.inner().setPublicIpAllocationMethod(IpAllocationMethod.STATIC);
 		return this;
 	}
 	
 	@Override
 	public PublicIpAddressImpl withDynamicIp() {
+		this.startUpdate();
 		this.inner().setPublicIpAllocationMethod(IpAllocationMethod.DYNAMIC);
 		return this;
 	}
@@ -79,6 +81,7 @@ class PublicIpAddressImpl
 	@Override
 	public PublicIpAddressImpl withLeafDomainLabel(String dnsName) {
 		PublicIpAddressDnsSettings dnsSettings;
+		this.startUpdate();
 		if(dnsName == null) {
 			this.inner().setDnsSettings(null);
 			return this;
@@ -111,14 +114,15 @@ class PublicIpAddressImpl
 		ensureGroup();
 	
 		this.subscription().networkManagementClient().getPublicIpAddressesOperations().createOrUpdate(this.groupName, this.name(), this.inner());
+		this.collection.invalidate(this.groupName, this.name());
 		return this.subscription().publicIpAddresses().get(this.groupName, this.name());
 	}
 	
 	@Override
 	public PublicIpAddressImpl refresh() throws Exception {
 		this.setInner(this.collection.getNativeEntity(
-				ResourcesImpl.groupFromResourceId(this.id()), 
-				ResourcesImpl.nameFromResourceId(this.id())));
+				this.resourceId().resourceGroup(), 
+				this.resourceId().name()));
 		return this;
 	}
 }
@@ -53,7 +53,7 @@ public class PublicIpAddressesImpl
 	}
 
 	@Override
-	public void delete(String groupName, String name) throws Exception {
+	protected void deleteNativeEntity(String groupName, String name) throws Exception {
 		subscription.networkManagementClient().getPublicIpAddressesOperations().delete(groupName, name);
 	}
 
@@ -21,12 +21,16 @@ package com.microsoft.azure.shortcuts.resources.implementation;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import com.microsoft.azure.management.compute.models.VirtualMachineImageListPublishersParameters;
 import com.microsoft.azure.management.compute.models.VirtualMachineImageResource;
+import com.microsoft.azure.shortcuts.common.implementation.EntityCache;
 import com.microsoft.azure.shortcuts.resources.Publisher;
 import com.microsoft.azure.shortcuts.resources.Publishers;
 import com.microsoft.azure.shortcuts.resources.Region;
@@ -35,11 +39,56 @@ public class PublishersImpl
 	extends ArmEntitiesImpl
 	implements Publishers {
 	
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+	
+	private final EntityCache<Entry> entries = new EntityCache<>(Region.values().length, DEFAULT_TTL_MILLIS, TimeUnit.MILLISECONDS);
+	
 	PublishersImpl(Subscription subscription) {
 		super(subscription);
 	}
 	
 	
+	// The publishers of one region, indexed by both lower case ID and lower case name
+	private static class Entry {
+		private final List<VirtualMachineImageResource> publishers;
+		private final Map<String, VirtualMachineImageResource> index;
+		
+		private Entry(List<VirtualMachineImageResource> publishers) {
+			this.publishers = Collections.unmodifiableList(new ArrayList<>(publishers));
+			this.index = new HashMap<>();
+			for(VirtualMachineImageResource publisher : publishers) {
+				this.index.put(publisher.getId().toLowerCase(), publisher);
+				this.index.put(publisher.getName().toLowerCase(), publisher);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Sets how long the publishers of a region are trusted before being listed again from Azure
+	 * @param duration The time to live, or 0 to list them on every call
+	 * @param unit The unit of the duration
+	 * @return This collection
+	 */
+	@Override
+	public PublishersImpl withTimeToLive(long duration, TimeUnit unit) {
+		this.entries.setTimeToLive(duration, unit);
+		return this;
+	}
+	
+	
+	/**
+	 * Removes the indexed publishers of the specified region, so that they are listed again on the next call
+	 * @param region The region
+	 */
+	@Override
+	public void invalidate(Region region) {
+		if(region != null) {
+			this.entries.invalidate(region.toString());
+		}
+	}
+	
+	
 	// Get providers from Azure
 	private ArrayList<VirtualMachineImageResource> getNativeEntities(String region) throws Exception {
 		VirtualMachineImageListPublishersParameters params = new VirtualMachineImageListPublishersParameters();
@@ -47,12 +96,22 @@ public class PublishersImpl
 		return this.subscription().computeManagementClient().getVirtualMachineImagesOperations().listPublishers(params).getResources();
 	}
 	
-	// Get the location from the resource id
-	private String locationFromId(String id) {
-		String[] parts = id.split("/");
-		for(int i = 0; i<parts.length; i++) {
-			if(parts[i].equalsIgnoreCase("Locations")) {
-				return parts[i+1];
+	
+	// Returns the publishers of the region, listing them from Azure only if they are not indexed yet or the index has expired.
+	// Concurrent callers for the same region wait for a single listing
+	private Entry entry(final Region region) throws Exception {
+		return this.entries.get(region.toString(), () -> new Entry(getNativeEntities(region.toString())));
+	}
+	
+	
+	// Get the location from the resource id, found after the "Locations" part of the id
+	private static String locationFromId(String id) {
+		final String marker = "/locations/";
+		for(int i = 0; i + marker.length() <= id.length(); i++) {
+			if(id.regionMatches(true, i, marker, 0, marker.length())) {
+				int start = i + marker.length();
+				int end = id.indexOf('/', start);
+				return id.substring(start, (end < 0) ? id.length() : end);
 			}
 		}
 		
@@ -63,7 +122,7 @@ public class PublishersImpl
 	@Override
 	public Map<String, Publisher> asMap(Region region) throws Exception {
 		TreeMap<String, Publisher> wrappers = new TreeMap<>();
-		for(VirtualMachineImageResource nativeItem : getNativeEntities(region.toString())) {
+		for(VirtualMachineImageResource nativeItem : entry(region).publishers) {
 			PublisherImpl wrapper = PublisherImpl.wrap(nativeItem, this);
 			wrappers.put(nativeItem.getId(), wrapper);
 		}
@@ -80,14 +139,9 @@ public class PublishersImpl
 
 	@Override
 	public Publisher get(Region region, String name) throws Exception {
-		VirtualMachineImageListPublishersParameters params = new VirtualMachineImageListPublishersParameters();
-		params.setLocation(region.toString());
-		for(VirtualMachineImageResource nativeItem : subscription.computeManagementClient().getVirtualMachineImagesOperations().listPublishers(params).getResources()) {
-			if(nativeItem.getId().equalsIgnoreCase(name)) {
-				return PublisherImpl.wrap(nativeItem, this);
-			} else if(nativeItem.getName().equalsIgnoreCase(name)) {
-				return PublisherImpl.wrap(nativeItem, this);
-			}
+		VirtualMachineImageResource nativeItem = entry(region).index.get(name.toLowerCase());
+		if(nativeItem != null) {
+			return PublisherImpl.wrap(nativeItem, this);
 		}
 
 		throw new NoSuchElementException("Publisher not found.");		
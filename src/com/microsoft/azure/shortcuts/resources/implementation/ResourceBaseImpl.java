@@ -22,8 +22,10 @@ package com.microsoft.azure.shortcuts.resources.implementation;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableRefreshableWrapperImpl;
 import com.microsoft.azure.shortcuts.resources.Region;
 import com.microsoft.azure.shortcuts.resources.common.ResourceBase;
@@ -37,14 +39,41 @@ public abstract class ResourceBaseImpl<
 	extends 
 		IndexableRefreshableWrapperImpl<WRAPPER, INNER>
 	implements 
-		ResourceBase {
+		ResourceBase,
+		ExecutorProvider {
 
 	protected final COLLECTIONIMPL collection;
+	private volatile ResourceId resourceId = null;
+	private volatile boolean isUpdating = false;
 	
 	protected ResourceBaseImpl(String id, INNER innerObject, COLLECTIONIMPL collection) {
 		super(id, innerObject);
 		this.collection = collection;
 	}
+	
+	
+	// Returns the parsed resource ID, parsing it again only when the ID changes, such as once the resource is created
+	final ResourceId resourceId() {
+		final String id = this.id();
+		ResourceId parsed = this.resourceId;
+		if(id == null) {
+			return null;
+		} else if(parsed == null || !id.equals(parsed.toString())) {
+			this.resourceId = parsed = ResourceId.parse(id);
+		}
+		return parsed;
+	}
+	
+	
+	// Evicts the entity from the cache of its collection as soon as this wrapper of an existing entity starts changing it, 
+	// so that readers fetch it again rather than trust a cached state the update is about to replace, even if it is never applied
+	final void startUpdate() {
+		final ResourceId resourceId = this.resourceId();
+		if(!this.isUpdating && resourceId != null && this.collection instanceof GroupableResourcesBaseImpl) {
+			this.isUpdating = true;
+			((GroupableResourcesBaseImpl<?, ?, ?>) this.collection).invalidate(resourceId.resourceGroup(), resourceId.name());
+		}
+	}
 
 	/*******************************************
 	 * Getters
@@ -54,6 +83,11 @@ public abstract class ResourceBaseImpl<
 		return this.collection.subscription();
 	}
 	
+	@Override
+	public Executor executor() {
+		return this.collection.executor();
+	}
+	
 	@Override
 	public String region() {
 		return this.inner().getLocation();
@@ -85,18 +119,21 @@ public abstract class ResourceBaseImpl<
 
 	@SuppressWarnings("unchecked")
 	public final WRAPPERIMPL withTags(Map<String, String> tags) {
+		this.startUpdate();
 		this.inner().setTags(new HashMap<>(tags));
 		return (WRAPPERIMPL) this;
 	}
 	
 	@SuppressWarnings("unchecked")
 	public final WRAPPERIMPL withTag(String name, String value) {
+		this.startUpdate();
 		this.inner().getTags().put(name, value);
 		return (WRAPPERIMPL) this;
 	}
 	
 	@SuppressWarnings("unchecked")
 	public final WRAPPERIMPL withoutTag(String name) {
+		this.startUpdate();
 		this.inner().getTags().remove(name);
 		return (WRAPPERIMPL) this;
 	}
@@ -107,6 +144,7 @@ public abstract class ResourceBaseImpl<
 	
 	@SuppressWarnings("unchecked")
 	public final WRAPPERIMPL withRegion(String regionName) {
+		this.startUpdate();
 		this.inner().setLocation(regionName);
 		return (WRAPPERIMPL) this;
 	}
@@ -22,8 +22,10 @@ package com.microsoft.azure.shortcuts.resources.implementation;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import com.microsoft.azure.management.resources.models.ResourceGroupExtended;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableRefreshableWrapperImpl;
 import com.microsoft.azure.shortcuts.resources.ResourceGroup;
 import com.microsoft.azure.shortcuts.resources.Region;
@@ -34,7 +36,8 @@ class ResourceGroupImpl
 	implements
 		ResourceGroup.Update,
 		ResourceGroup.Definition,
-		ResourceGroup {
+		ResourceGroup,
+		ExecutorProvider {
 	
 	private final ResourceGroupsImpl collection;
 	
@@ -50,6 +53,11 @@ class ResourceGroupImpl
 	 * Getters
 	 ***********************************************************/
 	
+	@Override
+	public Executor executor() {
+		return this.collection.executor();
+	}
+	
 	@Override
 	public String region() throws Exception {
 		return this.inner().getLocation();
@@ -130,6 +138,7 @@ class ResourceGroupImpl
 		}
 	
 		this.collection.subscription().resourceManagementClient().getResourceGroupsOperations().createOrUpdate(this.id, params);
+		this.collection.invalidate(this.id);
 		return this;
 	}
 	
@@ -147,6 +156,7 @@ class ResourceGroupImpl
 		params.setLocation(this.inner().getLocation());
 		params.setTags(this.inner().getTags());
 		this.collection.subscription().resourceManagementClient().getResourceGroupsOperations().createOrUpdate(this.id, params);
+		this.collection.invalidate(this.id);
 		return this;
 	}
 	
@@ -53,14 +53,19 @@ public class ResourceGroupsImpl
 	@Override
 	// Gets a specific resource group
 	public ResourceGroupImpl get(String name) throws Exception {
-		ResourceGroupExtended azureGroup = subscription.resourceManagementClient().getResourceGroupsOperations().get(name).getResourceGroup();
+		ResourceGroupExtended azureGroup = subscription.coalesce(flightKey(name), 
+			() -> subscription.resourceManagementClient().getResourceGroupsOperations().get(name).getResourceGroup());
 		return new ResourceGroupImpl(azureGroup, this);
 	}
 	
 	
 	@Override
 	public void delete(String name) throws Exception {
-		subscription.resourceManagementClient().getResourceGroupsOperations().delete(name);
+		try {
+			subscription.resourceManagementClient().getResourceGroupsOperations().delete(name);
+		} finally {
+			invalidate(name);
+		}
 		//TODO: Apparently the effect of the deletion is not immediate - Azure SDK misleadingly returns from this synch call even though listing resource groups will still include this
 	}
 	
@@ -81,7 +86,16 @@ public class ResourceGroupsImpl
 	 * Helpers
 	 ***************************************************/
 	
-	// Wraps native Azure group
+	// Stops later reads of the group from joining a read that may have started before it was written to
+	void invalidate(String name) {
+		subscription.forgetInFlight(flightKey(name));
+	}
+	
+	private static String flightKey(String name) {
+		return "resourceGroups/" + name;
+	}
+	
+		// Wraps native Azure group
 	private ResourceGroupImpl createWrapper(String name) {
 		ResourceGroupExtended azureGroup = new ResourceGroupExtended();
 		azureGroup.setName(name);
@@ -0,0 +1,160 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+// Immutable ARM resource ID, parsed once into the offsets of its segments within the original string.
+// Assumes this format: /subscriptions/{subscriptionId}/resourceGroups/{resourceGroupName}/providers/{resourceProviderNamespace}/{resourceType}/{resourceName}
+// with segments indexed and trailing empty segments dropped as String.split("/") would, so that the leading slash makes the subscription ID segment 2.
+public final class ResourceId {
+	static final int SUBSCRIPTION = 2;
+	static final int GROUP = 4;
+	static final int PROVIDER = 6;
+	static final int TYPE = 7;
+	static final int NAME = 8;
+	
+	private final String id;
+	private final int[] starts;
+	private final int[] ends;
+	private final int count;
+	
+	private ResourceId(String id) {
+		this.id = id;
+		
+		int slashes = 0;
+		for(int i = 0; i < id.length(); i++) {
+			if(id.charAt(i) == '/') {
+				slashes++;
+			}
+		}
+		
+		this.starts = new int[slashes + 1];
+		this.ends = new int[slashes + 1];
+		int segment = 0;
+		this.starts[0] = 0;
+		for(int i = 0; i < id.length(); i++) {
+			if(id.charAt(i) == '/') {
+				this.ends[segment++] = i;
+				this.starts[segment] = i + 1;
+			}
+		}
+		this.ends[segment] = id.length();
+
+		// Like String.split(), ignore trailing empty segments
+		int n = slashes + 1;
+		if(slashes > 0) {
+			while(n > 0 && this.starts[n-1] == this.ends[n-1]) {
+				n--;
+			}
+		}
+		this.count = n;
+	}
+	
+	
+	/**
+	 * @param id A resource ID
+	 * @return The parsed resource ID, or null if the ID is null
+	 */
+	public static ResourceId parse(String id) {
+		return (id != null) ? new ResourceId(id) : null;
+	}
+	
+	
+	/**
+	 * @param index The index of the segment
+	 * @return The segment, the only segment when asking for the name of an ID without slashes, or null if the ID does not have it
+	 */
+	String segment(int index) {
+		if(this.count == 1 && index == NAME) {
+			index = 0;
+		} else if(this.count <= index) {
+			return null;
+		}
+		return this.id.substring(this.starts[index], this.ends[index]);
+	}
+	
+	
+	/**
+	 * @param index The index of the segment to replace
+	 * @param value The new value of the segment
+	 * @return A new resource ID, with the segment replaced and any trailing slashes dropped, or null if this ID does not have the segment
+	 */
+	ResourceId withSegment(int index, String value) {
+		if(this.count <= index) {
+			return null;
+		}
+		
+		final int last = this.ends[this.count - 1];
+		return new ResourceId(new StringBuilder(last - (this.ends[index] - this.starts[index]) + value.length())
+			.append(this.id, 0, this.starts[index])
+			.append(value)
+			.append(this.id, this.ends[index], last)
+			.toString());
+	}
+	
+	
+	/***********************************************************
+	 * Getters
+	 ***********************************************************/
+	
+	public String subscriptionId() {
+		return this.segment(SUBSCRIPTION);
+	}
+	
+	public String resourceGroup() {
+		return this.segment(GROUP);
+	}
+	
+	public String provider() {
+		return this.segment(PROVIDER);
+	}
+	
+	public String type() {
+		return this.segment(TYPE);
+	}
+	
+	public String name() {
+		return this.segment(NAME);
+	}
+	
+	
+	/**
+	 * @param groupName The name of the resource group
+	 * @return A new resource ID, with the group set as specified, or null if this ID does not include a group
+	 */
+	public ResourceId withResourceGroup(String groupName) {
+		return this.withSegment(GROUP, groupName);
+	}
+	
+	
+	@Override
+	public String toString() {
+		return this.id;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		return (o instanceof ResourceId) && ((ResourceId) o).id.equals(this.id);
+	}
+	
+	@Override
+	public int hashCode() {
+		return this.id.hashCode();
+	}
+}
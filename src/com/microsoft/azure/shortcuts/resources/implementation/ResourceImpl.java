@@ -44,7 +44,7 @@ class ResourceImpl
 	
 	@Override
 	public String provider() throws Exception {
-		return ResourcesImpl.RESOURCE_ID.PROVIDER.from(this.inner().getId());
+		return this.resourceId().provider();
 	}
 	
 	@Override
@@ -70,7 +70,7 @@ class ResourceImpl
 	@Override
 	public ResourceImpl refresh() throws Exception {
 		return refresh(
-			ResourcesImpl.RESOURCE_ID.GROUP.from(this.id),
+			this.resourceId().resourceGroup(),
 			this.collection.createResourceIdentity(this.id));
 	}
 	
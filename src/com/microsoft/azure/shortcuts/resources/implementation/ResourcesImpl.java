@@ -19,16 +19,19 @@
 */
 package com.microsoft.azure.shortcuts.resources.implementation;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
+import com.microsoft.azure.management.resources.ResourceOperations;
 import com.microsoft.azure.management.resources.models.GenericResourceExtended;
 import com.microsoft.azure.management.resources.models.ResourceListParameters;
+import com.microsoft.azure.management.resources.models.ResourceListResult;
+import com.microsoft.azure.shortcuts.common.BatchResult;
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
-import com.microsoft.azure.shortcuts.resources.Provider;
-import com.microsoft.azure.shortcuts.resources.Provider.ResourceType;
+import com.microsoft.azure.shortcuts.common.implementation.PagedIterator;
 import com.microsoft.azure.shortcuts.resources.Resource;
 import com.microsoft.azure.shortcuts.resources.Resources;
 import com.microsoft.windowsazure.core.ResourceIdentity;
@@ -59,30 +62,15 @@ public class ResourcesImpl
 	    
 	    // Returns the requested part of the resource id
 	    public String from(String resourceId) {
-	    	String[] parts = resourceId.split("/");
-	    	if(parts.length == 1 && this.val == NAME.val) {
-	    		return parts[0];
-	    	} else if(parts.length <= this.val) {
-	    		return null;
-	    	} else {
-	    		return parts[this.val];
-	    	}
+	    	ResourceId parsed = ResourceId.parse(resourceId);
+	    	return (parsed != null) ? parsed.segment(this.val) : null;
 	    }
 	    
 	    // Returns a new ID based on the provided one, with the group set as specified
 	    public String setInID(String groupName, String id) {
-	    	String[] parts = id.split("/");
-	    	if(parts.length <= this.val) {
-	    		return null;
-	    	} else {
-	    		parts[this.val] = groupName;
-	    		StringBuilder newId = new StringBuilder();
-	    		for(int i = 0; i< parts.length; i++) {
-	    			if(i>0) newId.append("/");
-	    			newId.append(parts[i]);
-	    		}
-	    		return newId.toString();
-	    	}
+	    	ResourceId parsed = ResourceId.parse(id);
+	    	ResourceId updated = (parsed != null) ? parsed.withSegment(this.val, groupName) : null;
+	    	return (updated != null) ? updated.toString() : null;
 	    }
 	}
  	
@@ -119,13 +107,7 @@ public class ResourcesImpl
 		identity.setResourceType(type);
 		
 		// Find latest API version
-		final Provider p = subscription.providers().get(provider);
-		ResourceType t = p.resourceTypes(type);
-		if(t == null) {
-			return identity;
-		}
-		final String latestApiVersion = t.latestApiVersion();
-		identity.setResourceProviderApiVersion(latestApiVersion);
+		identity.setResourceProviderApiVersion(subscription.apiVersions().latestApiVersion(provider, type));
     	return identity;
     }
 
@@ -161,6 +143,32 @@ public class ResourcesImpl
 	}
 	
 	
+	@Override
+	public BatchResult deleteAll(Collection<String> ids, int parallelism) throws Exception {
+		// Delete through the typed collections where there is one, so that their caches stay current
+		return BatchDeleter.deleteAll(ids, id -> {
+			String type = (RESOURCE_ID.PROVIDER.from(id) + "/" + RESOURCE_ID.TYPE.from(id)).toLowerCase();
+			switch(type) {
+			case "microsoft.compute/virtualmachines": subscription.virtualMachines().delete(id); break;
+			case "microsoft.compute/availabilitysets": subscription.availabilitySets().delete(id); break;
+			case "microsoft.network/networkinterfaces": subscription.networkInterfaces().delete(id); break;
+			case "microsoft.network/loadbalancers": subscription.loadBalancers().delete(id); break;
+			case "microsoft.network/publicipaddresses": subscription.publicIpAddresses().delete(id); break;
+			case "microsoft.network/virtualnetworks": subscription.networks().delete(id); break;
+			case "microsoft.network/networksecuritygroups": subscription.networkSecurityGroups().delete(id); break;
+			case "microsoft.storage/storageaccounts": subscription.storageAccounts().delete(id); break;
+			default: this.delete(id);
+			}
+		}, subscription.executor(), parallelism);
+	}
+	
+	
+	@Override
+	public BatchResult deleteAll(Collection<String> ids) throws Exception {
+		return deleteAll(ids, BatchDeleter.DEFAULT_PARALLELISM);
+	}
+	
+	
 	@Override
 	public void delete(String name, String type, String provider, String group) throws Exception {
 		subscription.resourceManagementClient().getResourcesOperations().delete(
@@ -178,22 +186,40 @@ public class ResourcesImpl
 	@Override
 	public Map<String, Resource> asMap(String groupName) throws Exception {
 		HashMap<String, Resource> wrappers = new HashMap<>();
-		for(GenericResourceExtended nativeItem : getNativeEntities(groupName)) {
+		for(Iterator<GenericResourceExtended> nativeItems = getNativeEntitiesIterator(groupName); nativeItems.hasNext(); ) {
+			GenericResourceExtended nativeItem = nativeItems.next();
 			ResourceImpl wrapper = new ResourceImpl(nativeItem, this);
 			wrappers.put(nativeItem.getId(), wrapper);
 		}
 		
 		return Collections.unmodifiableMap(wrappers);
 	}
+	
+	
+	@Override
+	public Iterator<Resource> iterator(String groupName) {
+		return PagedIterator.wrapping(getNativeEntitiesIterator(groupName), nativeItem -> new ResourceImpl(nativeItem, this));
+	}
 
 	
 	/***********************************************************
 	 * Helpers
 	 ***********************************************************/
 	
-	private ArrayList<GenericResourceExtended> getNativeEntities(String groupName) throws Exception {
-		ResourceListParameters params = new ResourceListParameters(); 
-		params.setResourceGroupName(groupName);
-		return subscription.resourceManagementClient().getResourcesOperations().list(params).getResources();
+	// Returns a lazy iterator through the resources, following the next page links as they are reached
+	private Iterator<GenericResourceExtended> getNativeEntitiesIterator(final String groupName) {
+		return new PagedIterator<ResourceListResult, GenericResourceExtended>(
+			nextLink -> {
+				ResourceOperations operations = subscription.resourceManagementClient().getResourcesOperations();
+				if(nextLink != null) {
+					return operations.listNext(nextLink);
+				} else {
+					ResourceListParameters params = new ResourceListParameters(); 
+					params.setResourceGroupName(groupName);
+					return operations.list(params);
+				}
+			},
+			ResourceListResult::getResources,
+			ResourceListResult::getNextLink);
 	}
 }
@@ -24,11 +24,13 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.microsoft.azure.management.compute.models.VirtualMachineSize;
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableImpl;
+import com.microsoft.azure.shortcuts.common.implementation.MetadataCatalog;
 import com.microsoft.azure.shortcuts.resources.Size;
 import com.microsoft.azure.shortcuts.resources.Sizes;
 import com.microsoft.windowsazure.exception.ServiceException;
@@ -66,9 +68,47 @@ public class SizesImpl
 	 * @throws IOException 
 	 *******************************************************/
 	
-	private ArrayList<VirtualMachineSize> getNativeEntities(String region) throws Exception {
-		return subscription.computeManagementClient().getVirtualMachineSizesOperations().list(region).getVirtualMachineSizes();
+	private List<VirtualMachineSize> getNativeEntities(String region) throws Exception {
+		return subscription.metadata("arm/sizes/" + region.toLowerCase(), 
+			() -> subscription.computeManagementClient().getVirtualMachineSizesOperations().list(region).getVirtualMachineSizes(), 
+			SIZES_CODEC);
 	}
+	
+	
+	// Stores each size as its name, data disk count, memory, cores, OS disk size and resource disk size
+	private static final MetadataCatalog.Codec<List<VirtualMachineSize>> SIZES_CODEC = new MetadataCatalog.Codec<List<VirtualMachineSize>>() {
+		@Override
+		public List<String[]> encode(List<VirtualMachineSize> sizes) {
+			List<String[]> rows = new ArrayList<>();
+			for(VirtualMachineSize size : sizes) {
+				rows.add(new String[] {
+					size.getName(),
+					String.valueOf(size.getMaxDataDiskCount()),
+					String.valueOf(size.getMemoryInMB()),
+					String.valueOf(size.getNumberOfCores()),
+					String.valueOf(size.getOSDiskSizeInMB()),
+					String.valueOf(size.getResourceDiskSizeInMB())
+				});
+			}
+			return rows;
+		}
+		
+		@Override
+		public List<VirtualMachineSize> decode(List<String[]> rows) {
+			List<VirtualMachineSize> sizes = new ArrayList<>();
+			for(String[] row : rows) {
+				VirtualMachineSize size = new VirtualMachineSize();
+				size.setName(row[0]);
+				size.setMaxDataDiskCount(Integer.parseInt(row[1]));
+				size.setMemoryInMB(Integer.parseInt(row[2]));
+				size.setNumberOfCores(Integer.parseInt(row[3]));
+				size.setOSDiskSizeInMB(Integer.parseInt(row[4]));
+				size.setResourceDiskSizeInMB(Integer.parseInt(row[5]));
+				sizes.add(size);
+			}
+			return sizes;
+		}
+	};
 
 	
 	// Implementation of a Size
@@ -69,6 +69,7 @@ class StorageAccountImpl
 	
 	@Override
 	public StorageAccountImpl withAccountType(AccountType type) {
+		this.startUpdate();
 		this.inner().setAccountType(type);
 		return this;
 	}
@@ -94,6 +95,7 @@ class StorageAccountImpl
 		params.setTags(this.inner().getTags());
 	
 		this.subscription().storageManagementClient().getStorageAccountsOperations().create(this.groupName, this.name(), params);
+		this.collection.invalidate(this.groupName, this.name());
 		return this.subscription().storageAccounts().get(this.groupName, this.name());
 	}
 	
@@ -101,8 +103,8 @@ class StorageAccountImpl
 	@Override
 	public StorageAccountImpl refresh() throws Exception {
 		this.setInner(this.collection.getNativeEntity(
-			ResourcesImpl.groupFromResourceId(this.id()), 
-			ResourcesImpl.nameFromResourceId(this.id())));
+			this.resourceId().resourceGroup(), 
+			this.resourceId().name()));
 		return this;
 	}
 	
@@ -44,7 +44,7 @@ public class StorageAccountsImpl
 	}
 	
 	@Override
-	public void delete(String groupName, String name) throws Exception {
+	protected void deleteNativeEntity(String groupName, String name) throws Exception {
 		subscription.storageManagementClient().getStorageAccountsOperations().delete(groupName, name);
 	}
 
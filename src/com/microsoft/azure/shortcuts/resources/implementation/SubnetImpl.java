@@ -95,6 +95,7 @@ class SubnetImpl
 
 	@Override
 	public NetworkImpl attach() throws Exception {
+		this.parent().startUpdate();
 		this.parent().inner().getSubnets().add(this.inner());
 		return this.parent();
 	}
@@ -27,11 +27,21 @@ import com.microsoft.azure.management.resources.ResourceManagementClient;
 import com.microsoft.azure.management.resources.ResourceManagementService;
 import com.microsoft.azure.management.storage.StorageManagementClient;
 import com.microsoft.azure.management.storage.StorageManagementService;
+import com.microsoft.azure.shortcuts.common.CallRecorder;
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+import com.microsoft.azure.shortcuts.common.implementation.DeepCopy;
+import com.microsoft.azure.shortcuts.common.implementation.InstrumentedClient;
+import com.microsoft.azure.shortcuts.common.implementation.MetadataCatalog;
+import com.microsoft.azure.shortcuts.common.implementation.SharedConnectionPool;
+import com.microsoft.azure.shortcuts.common.implementation.SingleFlight;
+import com.microsoft.azure.shortcuts.common.implementation.Snapshot;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.Utils;
 import com.microsoft.azure.shortcuts.resources.AvailabilitySet;
 import com.microsoft.azure.shortcuts.resources.AvailabilitySets;
 import com.microsoft.azure.shortcuts.resources.ResourceGroup;
 import com.microsoft.azure.shortcuts.resources.ResourceGroups;
+import com.microsoft.azure.shortcuts.resources.ImageCatalog;
 import com.microsoft.azure.shortcuts.resources.LoadBalancer;
 import com.microsoft.azure.shortcuts.resources.LoadBalancers;
 import com.microsoft.azure.shortcuts.resources.Network;
@@ -54,8 +64,8 @@ import com.microsoft.azure.shortcuts.resources.StorageAccount;
 import com.microsoft.azure.shortcuts.resources.StorageAccounts;
 import com.microsoft.azure.shortcuts.resources.VirtualMachine;
 import com.microsoft.azure.shortcuts.resources.VirtualMachines;
-import com.microsoft.azure.utility.AuthHelper;
 import com.microsoft.windowsazure.Configuration;
+import com.microsoft.windowsazure.core.FilterableService;
 import com.microsoft.windowsazure.management.configuration.ManagementConfiguration;
 import com.microsoft.windowsazure.management.configuration.PublishSettingsLoader;
 
@@ -65,7 +75,9 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
 import javax.naming.ServiceUnavailableException;
 import javax.xml.parsers.ParserConfigurationException;
@@ -76,7 +88,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
-public class Subscription {
+public class Subscription implements ExecutorProvider {
 	
 	private enum AuthSettings {
 		SUBSCRIPTION_ID("id"),
@@ -103,11 +115,13 @@ public class Subscription {
     public static String ARM_URL = "https://management.azure.com/";
     public static String ARM_AAD_URL = "https://login.windows.net/";
 
-    private Configuration configuration;
-    private ResourceManagementClient resourceManagementClient;
-    private StorageManagementClient storageManagementClient;
-    private ComputeManagementClient computeManagementClient;
-    private NetworkResourceProviderClient networkResourceProviderClient;
+    private final Configuration configuration;
+    private volatile Executor executor = Async.defaultExecutor();
+    private volatile ResourceManagementClient resourceManagementClient;
+    private volatile StorageManagementClient storageManagementClient;
+    private volatile ComputeManagementClient computeManagementClient;
+    private volatile ComputeManagementClient computeStatusClient;
+    private volatile NetworkResourceProviderClient networkResourceProviderClient;
 
     private final ResourcesImpl resources;
     private final ResourceGroupsImpl resourceGroups;
@@ -121,7 +135,14 @@ public class Subscription {
     private final PublicIpAddressesImpl publicIpAddresses;
     private final LoadBalancersImpl loadBalancers;
     private final PublishersImpl publishers;
+    private final ImageCatalogImpl imageCatalog;
     private final NetworkSecurityGroupsImpl networkSecurityGroups;
+    private final ApiVersionCache apiVersions;
+    private final OperationTracker operations;
+    private final ThrottlingGovernor governor = new ThrottlingGovernor();
+    private volatile SingleFlight singleFlight = new SingleFlight();
+    private volatile CallRecorder callRecorder = null;
+    private volatile MetadataCatalog metadataCatalog = null;
 
     public static Subscription authenticate(String subscriptionId, String tenantId, String clientId, String clientKey) throws Exception {
     	return new Subscription(subscriptionId, tenantId, clientId, clientKey);
@@ -146,7 +167,7 @@ public class Subscription {
     
     
     private Subscription(Configuration configuration) {
-    	this.configuration = configuration;
+    	this.configuration = SharedConnectionPool.applyTo(configuration);
         this.resources = new ResourcesImpl(this);
         this.resourceGroups = new ResourceGroupsImpl(this);
         this.providers = new ProvidersImpl(this);
@@ -159,7 +180,10 @@ public class Subscription {
         this.publicIpAddresses = new PublicIpAddressesImpl(this);
         this.loadBalancers = new LoadBalancersImpl(this);
         this.publishers = new PublishersImpl(this);
+        this.imageCatalog = new ImageCatalogImpl(this);
         this.networkSecurityGroups = new NetworkSecurityGroupsImpl(this);
+        this.apiVersions = new ApiVersionCache(this);
+        this.operations = new OperationTracker(this);
     }
     
     
@@ -175,10 +199,142 @@ public class Subscription {
     }
     
     
+    /**
+     * Sets the executor running the asynchronous variants of the verbs, such as createAsync() or getAsync(). 
+     * By default, a shared pool of daemon threads is used. On Java 21 or later, a virtual thread per task executor works well.
+     * @param executor The executor to use
+     * @return This subscription
+     */
+    public Subscription withExecutor(Executor executor) {
+    	this.executor = (executor != null) ? executor : Async.defaultExecutor();
+    	return this;
+    }
+    
+    
+    /**
+     * Creates all the underlying management clients up front rather than on first use, so that the first calls
+     * made concurrently from several threads do not pay for client construction. The clients share one pool of HTTP connections.
+     * @return This subscription
+     */
+    public Subscription withEagerClients() {
+    	this.resourceManagementClient();
+    	this.storageManagementClient();
+    	this.computeManagementClient();
+    	this.networkManagementClient();
+    	return this;
+    }
+    
+    
+    /**
+     * Serves reference data that rarely changes - providers and VM sizes - from a catalog stored in the specified file, 
+     * so that a new process does not need to fetch it again. Data older than a day is served as is and revalidated in the background
+     * @param file The catalog file, created if it does not exist
+     * @return This subscription
+     */
+    public Subscription withMetadataCatalog(File file) {
+    	this.metadataCatalog = new MetadataCatalog(file, this);
+    	return this;
+    }
+    
+    
+    /**
+     * Serves reference data from a catalog stored in the user's home directory, under .azure-shortcuts
+     * @return This subscription
+     */
+    public Subscription withMetadataCatalog() {
+    	return this.withMetadataCatalog(new File(new File(System.getProperty("user.home"), ".azure-shortcuts"), 
+    		String.format("metadata-arm-%s.tsv", this.subscriptionId())));
+    }
+    
+    
+    // Returns the ID of the subscription, as configured
+    String subscriptionId() {
+    	return String.valueOf(this.configuration.getProperty(ManagementConfiguration.SUBSCRIPTION_ID));
+    }
+    
+    
+    /**
+     * Serves reference data from the metadata catalog only, never revalidating it, as suits short-lived processes. 
+     * Data missing from the catalog is still fetched once. Uses the default catalog if none was set
+     * @return This subscription
+     */
+    public Subscription withOfflineMetadata() {
+    	if(this.metadataCatalog == null) {
+    		this.withMetadataCatalog();
+    	}
+    	this.metadataCatalog.withOffline(true);
+    	return this;
+    }
+    
+    
+    /**
+     * Determines whether concurrent identical reads of the same entity share one call to Azure, which is the default. 
+     * Each caller gets its own copy of the result, so the wrappers built from it can be changed independently.
+     * @param enabled False to make each read its own call
+     * @return This subscription
+     */
+    public Subscription withRequestCoalescing(boolean enabled) {
+    	this.singleFlight = enabled ? new SingleFlight() : null;
+    	return this;
+    }
+    
+    
+    /**
+     * @return The number of reads that shared a call already in flight instead of making their own
+     */
+    public long coalescedRequests() {
+    	SingleFlight singleFlight = this.singleFlight;
+    	return (singleFlight != null) ? singleFlight.coalesced() : 0;
+    }
+    
+    
+    /**
+     * Reports every call made to Azure to the specified recorder, with its operation, resource type, status, 
+     * retries and latency. A CallMetrics instance aggregates them into latency histograms and counters
+     * @param recorder The recorder, or null to stop recording
+     * @return This subscription
+     */
+    public Subscription withCallRecorder(CallRecorder recorder) {
+    	this.callRecorder = recorder;
+    	return this;
+    }
+    
+    
+    // Makes a read, or joins the identical read already in flight and gets a copy of its result if request coalescing is enabled
+    <T> T coalesce(String key, Callable<T> read) throws Exception {
+    	SingleFlight singleFlight = this.singleFlight;
+    	return (singleFlight != null) ? singleFlight.call(key, read, DeepCopy::of) : read.call();
+    }
+    
+    
+    // Stops later reads from joining a read that may have started before a write
+    void forgetInFlight(String... keys) {
+    	SingleFlight singleFlight = this.singleFlight;
+    	if(singleFlight != null) {
+    		for(String key : keys) {
+    			singleFlight.forget(key);
+    		}
+    	}
+    }
+    
+    
+    // Returns reference data from the metadata catalog if there is one, or fetches it
+    <T> T metadata(String key, Snapshot.Loader<T> fetcher, MetadataCatalog.Codec<T> codec) throws Exception {
+    	MetadataCatalog catalog = this.metadataCatalog;
+    	return (catalog != null) ? catalog.get(key, fetcher, codec) : fetcher.load();
+    }
+    
+    
     //**********************************************************
     //* Getters
     //**********************************************************
 
+    @Override
+    public Executor executor() {
+    	return this.executor;
+    }
+    
+
     public NetworkSecurityGroups networkSecurityGroups() {
     	return this.networkSecurityGroups;
     }
@@ -203,6 +359,10 @@ public class Subscription {
     	return this.publishers().get(region, name);
     }
     
+    public ImageCatalog imageCatalog() {
+    	return this.imageCatalog;
+    }
+    
     public LoadBalancers loadBalancers() {
     	return this.loadBalancers;
     }
@@ -267,6 +427,20 @@ public class Subscription {
     	return this.providers().get(name);
     }
     
+    public ApiVersionCache apiVersions() {
+    	return this.apiVersions;
+    }
+    
+    // Returns the tracker shared by the long-running operations of this subscription
+    OperationTracker operations() {
+    	return this.operations;
+    }
+    
+    // Returns the governor pacing the requests of this subscription
+    ThrottlingGovernor governor() {
+    	return this.governor;
+    }
+    
     public Resources resources() {
     	return this.resources;
     }
@@ -464,44 +638,94 @@ public class Subscription {
     	return createConfiguration(subscriptionId, tenantId, clientId, clientKey, mgmtUri, baseUrl, authUrl); 
     }
     
+    // Puts the throttling governor and the call instrumentation in front of a newly created management client
+    private <T extends FilterableService<T>> T decorate(Class<T> type, T client, String provider) {
+    	return InstrumentedClient.wrap(type, this.governor.govern(type, InstrumentedClient.observe(client)), provider, () -> this.callRecorder);
+    }
+    
+    
     // Returns the compute management client, creating if needed
     ComputeManagementClient computeManagementClient() {
-    	if(this.computeManagementClient == null) {
-    		this.computeManagementClient = ComputeManagementService.create(this.configuration);
+    	ComputeManagementClient client = this.computeManagementClient;
+    	if(client == null) {
+    		synchronized(this) {
+    			client = this.computeManagementClient;
+    			if(client == null) {
+    				this.computeManagementClient = client = this.decorate(ComputeManagementClient.class, ComputeManagementService.create(this.configuration), "Microsoft.Compute");
+    			}
+    		}
+    	}
+    	
+    	return client;
+    }
+    
+    
+    // Returns the compute management client the operation tracker polls through, creating if needed. The governor observes its
+    // responses but neither paces nor retries its calls, since that would block the tracker's few poller threads
+    ComputeManagementClient computeStatusClient() {
+    	ComputeManagementClient client = this.computeStatusClient;
+    	if(client == null) {
+    		synchronized(this) {
+    			client = this.computeStatusClient;
+    			if(client == null) {
+    				this.computeStatusClient = client = InstrumentedClient.wrap(
+    					ComputeManagementClient.class, 
+    					this.governor.observe(InstrumentedClient.observe(ComputeManagementService.create(this.configuration))), 
+    					"Microsoft.Compute", 
+    					() -> this.callRecorder);
+    			}
+    		}
     	}
     	
-    	return this.computeManagementClient;
+    	return client;
     }
     
     
     // Returns the network management client, creating if needed
     NetworkResourceProviderClient networkManagementClient() {
-    	if(this.networkResourceProviderClient == null) {
-    		this.networkResourceProviderClient = NetworkResourceProviderService.create(this.configuration);
+    	NetworkResourceProviderClient client = this.networkResourceProviderClient;
+    	if(client == null) {
+    		synchronized(this) {
+    			client = this.networkResourceProviderClient;
+    			if(client == null) {
+    				this.networkResourceProviderClient = client = this.decorate(NetworkResourceProviderClient.class, NetworkResourceProviderService.create(this.configuration), "Microsoft.Network");
+    			}
+    		}
     	}
     	
-    	return this.networkResourceProviderClient;
+    	return client;
     }
     
     
     // Returns the resource management client, creating if needed
     ResourceManagementClient resourceManagementClient() {
-    	if(this.resourceManagementClient == null) {
-    		this.resourceManagementClient = ResourceManagementService.create(this.configuration);
+    	ResourceManagementClient client = this.resourceManagementClient;
+    	if(client == null) {
+    		synchronized(this) {
+    			client = this.resourceManagementClient;
+    			if(client == null) {
+    				this.resourceManagementClient = client = this.decorate(ResourceManagementClient.class, ResourceManagementService.create(this.configuration), "Microsoft.Resources");
+    			}
+    		}
     	}
     	
-    	return this.resourceManagementClient;
-
+    	return client;
     }
 
     
-    // Returns the storage management client
+    // Returns the storage management client, creating if needed
     StorageManagementClient storageManagementClient() {
-    	if(this.storageManagementClient == null) {
-    		this.storageManagementClient = StorageManagementService.create(this.configuration);
+    	StorageManagementClient client = this.storageManagementClient;
+    	if(client == null) {
+    		synchronized(this) {
+    			client = this.storageManagementClient;
+    			if(client == null) {
+    				this.storageManagementClient = client = this.decorate(StorageManagementClient.class, StorageManagementService.create(this.configuration), "Microsoft.Storage");
+    			}
+    		}
     	}
     	
-    	return this.storageManagementClient;
+    	return client;
     }
     
     
@@ -537,18 +761,18 @@ public class Subscription {
 			authUrl = Subscription.ARM_AAD_URL;
 		}
 		
-		String accessToken = AuthHelper.getAccessTokenFromServicePrincipalCredentials(
-			managementUri, 
-			authUrl,
-			tenantId, 
-			clientId, 
-			clientKey).getAccessToken();
+		// Tokens are shared by all subscriptions using the same service principal and kept fresh in the background
+		AccessTokenProvider tokenProvider = AccessTokenProvider.of(managementUri, authUrl, tenantId, clientId, clientKey);
 		
-		return ManagementConfiguration.configure(
+		Configuration config = ManagementConfiguration.configure(
 			(String)null, 
 			baseUri,
 			subscriptionId,
-			accessToken);
+			tokenProvider.accessToken());
+		config.setProperty(
+			ManagementConfiguration.SUBSCRIPTION_CLOUD_CREDENTIALS, 
+			new AccessTokenCredentials(baseUri, subscriptionId, tokenProvider));
+		return config;
 	}
 
 }
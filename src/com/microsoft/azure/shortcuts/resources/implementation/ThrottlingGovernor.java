@@ -0,0 +1,243 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.resources.implementation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.shortcuts.common.implementation.InstrumentedClient;
+import com.microsoft.windowsazure.core.FilterableService;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceRequestContext;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceRequestFilter;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceResponseContext;
+import com.microsoft.windowsazure.core.pipeline.filter.ServiceResponseFilter;
+import com.microsoft.windowsazure.exception.ServiceException;
+
+// Paces the ARM requests of a subscription to stay within its rate limits, and retries the requests ARM throttled anyway.
+// Reads and writes are paced separately, each by a token bucket refilled according to the remaining quota ARM reports 
+// in the x-ms-ratelimit-remaining-subscription-* headers of every response
+class ThrottlingGovernor implements ServiceRequestFilter, ServiceResponseFilter {
+	// ARM subscription limits per rolling hour
+	private static final int READS_PER_HOUR = 12000;
+	private static final int WRITES_PER_HOUR = 1200;
+	
+	// The remaining quota is spread over this horizon, so that a burst cannot drain it faster
+	private static final long HORIZON_MILLIS = TimeUnit.SECONDS.toMillis(60);
+	
+	private static final int MAX_RETRIES = 5;
+	private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+	private static final long MAX_RETRY_DELAY_MILLIS = 32000;
+	
+	private static final String REMAINING_READS_HEADER = "x-ms-ratelimit-remaining-subscription-reads";
+	private static final String REMAINING_WRITES_HEADER = "x-ms-ratelimit-remaining-subscription-writes";
+	private static final String RETRY_AFTER_HEADER = "Retry-After";
+	
+	private final TokenBucket reads = new TokenBucket(READS_PER_HOUR);
+	private final TokenBucket writes = new TokenBucket(WRITES_PER_HOUR);
+	
+	
+	/**
+	 * Installs the governor in front of a management client
+	 * @param type The interface of the client
+	 * @param client The client, as created by its management service
+	 * @return A client whose requests are paced, and whose calls are retried when throttled
+	 */
+	<T extends FilterableService<T>> T govern(Class<T> type, T client) {
+		return type.cast(retrying(type, client.withRequestFilterFirst(this).withResponseFilterFirst(this)));
+	}
+	
+	
+	/**
+	 * Lets the governor learn the remaining quota and any throttling from the responses of a client, without pacing 
+	 * or retrying its calls, for callers that must not block and wait on their own, like the operation tracker
+	 * @param client The client, as created by its management service
+	 * @return A client whose responses are observed by the governor
+	 */
+	<T extends FilterableService<T>> T observe(T client) {
+		return client.withResponseFilterFirst(this);
+	}
+	
+	
+	/**
+	 * Reserves the next slot for a read made through an observed client
+	 * @return How long to wait before making the read, in milliseconds
+	 */
+	long reserveRead() {
+		return this.reads.reserve();
+	}
+	
+	
+	@Override
+	public void filter(ServiceRequestContext request) {
+		try {
+			bucketFor(request).acquire();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	
+	@Override
+	public void filter(ServiceRequestContext request, ServiceResponseContext response) {
+		final TokenBucket bucket = bucketFor(request);
+		final String remaining = response.getHeader(bucket == this.reads ? REMAINING_READS_HEADER : REMAINING_WRITES_HEADER);
+		if(remaining != null) {
+			try {
+				bucket.setRemaining(Integer.parseInt(remaining.trim()));
+			} catch(NumberFormatException e) {
+				// Ignore malformed headers
+			}
+		}
+		
+		// Hold back all the requests of the same kind for as long as ARM asked
+		if(isThrottling(response.getStatus())) {
+			final String retryAfter = response.getHeader(RETRY_AFTER_HEADER);
+			if(retryAfter != null) {
+				try {
+					bucket.pause(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+				} catch(NumberFormatException e) {
+					// Retry-After given as an HTTP date is left to the retry backoff
+				}
+			}
+		}
+	}
+	
+	
+	private TokenBucket bucketFor(ServiceRequestContext request) {
+		final String method = request.getMethod();
+		return ("GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method)) ? this.reads : this.writes;
+	}
+	
+	
+	private static boolean isThrottling(int status) {
+		return status == 429 || status == 503;
+	}
+	
+	
+	// Determines whether a call failed because it was throttled, whether thrown directly or from a long-running operation's future
+	private static boolean isThrottled(Throwable e) {
+		while(e instanceof ExecutionException && e.getCause() != null) {
+			e = e.getCause();
+		}
+		return (e instanceof ServiceException) && isThrottling(((ServiceException) e).getHttpStatusCode());
+	}
+	
+	
+	// Full jitter exponential backoff; any Retry-After is enforced by the token bucket when the call is retried
+	private static long retryDelayMillis(int attempt) {
+		final long ceiling = Math.min(MAX_RETRY_DELAY_MILLIS, MIN_RETRY_DELAY_MILLIS << Math.min(attempt, 5));
+		return MIN_RETRY_DELAY_MILLIS / 2 + ThreadLocalRandom.current().nextLong(ceiling);
+	}
+	
+	
+	// Wraps the client so that its calls, and the calls of the operation groups it returns, are retried when throttled
+	private Object retrying(Class<?> type, final Object target) {
+		return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, new InvocationHandler() {
+			// The operation groups are fetched on every call, so wrap each of them only once
+			private final ConcurrentHashMap<Method, Object> operations = new ConcurrentHashMap<>();
+			
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(method.getDeclaringClass() == Object.class) {
+					return method.invoke(target, args);
+				}
+				
+				for(int attempt = 0; ; attempt++) {
+					final Object result;
+					try {
+						result = method.invoke(target, args);
+					} catch(InvocationTargetException e) {
+						if(attempt >= MAX_RETRIES || !isThrottled(e.getCause())) {
+							throw e.getCause();
+						}
+						
+						InstrumentedClient.noteRetry();
+						Thread.sleep(retryDelayMillis(attempt));
+						continue;
+					}
+					
+					final Class<?> returnType = method.getReturnType();
+					if(result != null && returnType.isInterface() && returnType.getSimpleName().endsWith("Operations")) {
+						return this.operations.computeIfAbsent(method, m -> retrying(returnType, result));
+					} else {
+						return result;
+					}
+				}
+			}
+		});
+	}
+	
+	
+	// Token bucket for one kind of request. Each caller reserves the next free slot, so the callers are served in order
+	// without polling, and the refill rate follows the remaining quota so that the quota lasts at least the horizon
+	private static final class TokenBucket {
+		private final double sustainableRate;
+		private double rate;
+		private double tokens;
+		private long updatedAt = System.currentTimeMillis();
+		private long pausedUntil = 0;
+		
+		private TokenBucket(int perHour) {
+			this.sustainableRate = perHour / (double) TimeUnit.HOURS.toMillis(1);
+			this.setRemaining(perHour);
+			this.tokens = this.capacity();
+		}
+		
+		// One second's worth of requests, at least one
+		private double capacity() {
+			return Math.max(1, this.rate * 1000);
+		}
+		
+		synchronized void setRemaining(int remaining) {
+			this.refill(System.currentTimeMillis());
+			this.rate = Math.max(this.sustainableRate, remaining / (double) HORIZON_MILLIS);
+		}
+		
+		synchronized void pause(long millis) {
+			this.pausedUntil = Math.max(this.pausedUntil, System.currentTimeMillis() + millis);
+		}
+		
+		void acquire() throws InterruptedException {
+			final long wait = this.reserve();
+			if(wait > 0) {
+				Thread.sleep(wait);
+			}
+		}
+		
+		// Takes a token, returning how long the caller must wait before it is available
+		synchronized long reserve() {
+			final long now = System.currentTimeMillis();
+			this.refill(now);
+			this.tokens -= 1;
+			return Math.max(this.pausedUntil - now, (this.tokens < 0) ? (long) Math.ceil(-this.tokens / this.rate) : 0);
+		}
+		
+		private void refill(long now) {
+			this.tokens = Math.min(this.capacity(), this.tokens + (now - this.updatedAt) * this.rate);
+			this.updatedAt = now;
+		}
+	}
+}
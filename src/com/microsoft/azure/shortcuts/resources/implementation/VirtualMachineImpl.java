@@ -25,6 +25,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.microsoft.azure.management.compute.models.AvailabilitySetReference;
 import com.microsoft.azure.management.compute.models.BootDiagnostics;
@@ -38,7 +39,11 @@ import com.microsoft.azure.management.compute.models.OSProfile;
 import com.microsoft.azure.management.compute.models.StorageProfile;
 import com.microsoft.azure.management.compute.models.VirtualHardDisk;
 import com.microsoft.azure.management.compute.models.VirtualMachineCaptureParameters;
+import com.microsoft.azure.management.compute.models.VirtualMachineCaptureResponse;
 import com.microsoft.azure.management.compute.models.VirtualMachineExtension;
+import com.microsoft.azure.shortcuts.common.Operation;
+import com.microsoft.azure.shortcuts.common.implementation.CreationPlan;
+import com.microsoft.azure.shortcuts.common.implementation.OperationImpl;
 import com.microsoft.azure.shortcuts.resources.AvailabilitySet;
 import com.microsoft.azure.shortcuts.resources.ResourceGroup;
 import com.microsoft.azure.shortcuts.resources.Network;
@@ -210,6 +215,7 @@ class VirtualMachineImpl
 	
 	@Override
 	public VirtualMachineImpl withAdminPassword(String password) {
+		this.startUpdate();
 		this.inner().getOSProfile().setAdminPassword(password);
 		return this;
 	}
@@ -217,6 +223,7 @@ class VirtualMachineImpl
 	
 	@Override
 	public VirtualMachineImpl withAdminUsername(String username) {
+		this.startUpdate();
 		this.inner().getOSProfile().setAdminUsername(username);
 		return this;
 	}
@@ -228,6 +235,7 @@ class VirtualMachineImpl
 	
 	@Override
 	public VirtualMachineImpl withImage(String publisher, String offer, String sku, String version) {
+		this.startUpdate();
 		ImageReference imageReference = this.inner().getStorageProfile().getImageReference();
 		imageReference.setPublisher(publisher);
 		imageReference.setOffer(offer);
@@ -239,6 +247,7 @@ class VirtualMachineImpl
 	
 	@Override
 	public VirtualMachineImpl withSize(String sizeName) {
+		this.startUpdate();
 		this.inner().getHardwareProfile().setVirtualMachineSize(sizeName);
 		return this;
 	}
@@ -289,6 +298,7 @@ class VirtualMachineImpl
 	
 	@Override
 	public VirtualMachineImpl withExistingAvailabilitySet(String id) {
+		this.startUpdate();
 		this.availabilitySetId = id;
 		this.isExistingAvailabilitySet = true;
 		AvailabilitySetReference availabilitySetRef = this.inner().getAvailabilitySetReference();
@@ -340,6 +350,7 @@ class VirtualMachineImpl
 	
 	@Override
 	public VirtualMachineImpl withComputerName(String computerName) {
+		this.startUpdate();
 		this.inner().getOSProfile().setComputerName(computerName);
 		return this;
 	}
@@ -347,6 +358,7 @@ class VirtualMachineImpl
 	
 	@Override
 	public VirtualMachineImpl withExistingNetworkInterface(String resourceId) {
+		this.startUpdate();
 		NetworkInterfaceReference nicref = new NetworkInterfaceReference();
 		for(NetworkInterfaceReference n : this.inner().getNetworkProfile().getNetworkInterfaces()) {
 			n.setPrimary(false);
@@ -370,6 +382,7 @@ class VirtualMachineImpl
 	
 	@Override
 	public DefinitionCreatable withNewDataDisk(int diskSizeGB) {
+		this.startUpdate();
 		DataDisk disk = new DataDisk();
 		this.inner().getStorageProfile().getDataDisks().add(disk);
 		disk.setCreateOption(DiskCreateOptionTypes.EMPTY);
@@ -384,6 +397,7 @@ class VirtualMachineImpl
 	
 	@Override
 	public DefinitionCreatable withExistingDataDisk(String vhdUri) {
+		this.startUpdate();
 		DataDisk disk = new DataDisk();
 		this.inner().getStorageProfile().getDataDisks().add(disk);
 		disk.setCreateOption(DiskCreateOptionTypes.ATTACH);
@@ -404,72 +418,153 @@ class VirtualMachineImpl
 	
 	@Override
 	public VirtualMachineImpl stop() throws Exception {
-		this.subscription().computeManagementClient().getVirtualMachinesOperations().powerOff(this.resourceGroup(), this.name());
+		this.beginStop().await();
 		return this;
 	}
 	
 	@Override
 	public VirtualMachineImpl restart() throws Exception {
-		this.subscription().computeManagementClient().getVirtualMachinesOperations().restart(this.resourceGroup(), this.name());
+		this.beginRestart().await();
 		return this;
 	}
 	
 	@Override
 	public VirtualMachineImpl deallocate() throws Exception {
-		this.subscription().computeManagementClient().getVirtualMachinesOperations().deallocate(this.resourceGroup(), this.name());
+		this.beginDeallocate().await();
 		return this;
 	}
 	
 	@Override
 	public VirtualMachineImpl start() throws Exception {
-		this.subscription().computeManagementClient().getVirtualMachinesOperations().start(this.resourceGroup(), this.name());
+		this.beginStart().await();
 		return this;
 	}
 	
 	@Override
 	public VirtualMachineImpl capture(String containerName, String diskNamePrefix, boolean overwrite) throws Exception {
+		this.beginCapture(containerName, diskNamePrefix, overwrite).await();
+		return this;
+	}
+	
+	@Override
+	public VirtualMachineImpl generalize() throws Exception {
+		this.beginGeneralize().await();
+		return this;
+	}
+	
+	@Override
+	public Operation<VirtualMachine> beginStop() throws Exception {
+		return this.collection.beginPowerOperation(this.id(), VirtualMachinesImpl.PowerOperation.STOP, (VirtualMachine) this);
+	}
+	
+	@Override
+	public Operation<VirtualMachine> beginRestart() throws Exception {
+		return this.collection.beginPowerOperation(this.id(), VirtualMachinesImpl.PowerOperation.RESTART, (VirtualMachine) this);
+	}
+	
+	@Override
+	public Operation<VirtualMachine> beginDeallocate() throws Exception {
+		return this.collection.beginPowerOperation(this.id(), VirtualMachinesImpl.PowerOperation.DEALLOCATE, (VirtualMachine) this);
+	}
+	
+	@Override
+	public Operation<VirtualMachine> beginStart() throws Exception {
+		return this.collection.beginPowerOperation(this.id(), VirtualMachinesImpl.PowerOperation.START, (VirtualMachine) this);
+	}
+	
+	@Override
+	public Operation<VirtualMachine> beginCapture(String containerName, String diskNamePrefix, boolean overwrite) throws Exception {
 		VirtualMachineCaptureParameters params = new VirtualMachineCaptureParameters();
 		params.setDestinationContainerName(containerName.toLowerCase());
 		params.setVirtualHardDiskNamePrefix(diskNamePrefix);
 		params.setOverwrite(overwrite);
-		this.subscription().computeManagementClient().getVirtualMachinesOperations().capture(this.resourceGroup(), this.name(), params);
-		return this;
+		VirtualMachineCaptureResponse response = this.subscription().computeManagementClient().getVirtualMachinesOperations().beginCapturing(this.resourceGroup(), this.name(), params);
+		return this.track("capture", response.getAzureAsyncOperation(), response.getRetryAfter());
 	}
 	
 	@Override
-	public VirtualMachineImpl generalize() throws Exception {
+	public Operation<VirtualMachine> beginGeneralize() throws Exception {
+		// Generalizing completes synchronously
 		this.subscription().computeManagementClient().getVirtualMachinesOperations().generalize(this.resourceGroup(), this.name());
-		return this;
+		return this.collection.invalidating(this.id(), OperationImpl.completed(this.id(), "generalize", (VirtualMachine) this));
+	}
+	
+	
+	// Hands an accepted operation over to the subscription's shared tracker
+	private Operation<VirtualMachine> track(String verb, String statusUrl, int retryAfterSeconds) {
+		return this.collection.invalidating(this.id(), this.subscription().operations().track(this.id(), verb, statusUrl, retryAfterSeconds, (VirtualMachine) this));
 	}
 	
 	
 	@Override
 	public VirtualMachine create() throws Exception {
+		// Plan the provisioning of the related resources so that independent ones are created concurrently
+		final CreationPlan plan = new CreationPlan(this.subscription().executor());
+		
 		// Ensure group
-		ResourceGroup group = this.ensureGroup();
+		final CreationPlan.Step<ResourceGroup> group = plan.add(new Callable<ResourceGroup>() {
+			@Override
+			public ResourceGroup call() throws Exception {
+				return ensureGroup();
+			}
+		});
 		
 		// Ensure storage account
-		StorageAccount storageAccount = this.ensureStorageAccount(group.name()); // TODO Remove group refernce
+		final CreationPlan.Step<StorageAccount> storageAccount = plan.add(new Callable<StorageAccount>() {
+			@Override
+			public StorageAccount call() throws Exception {
+				return ensureStorageAccount(group.result().name()); // TODO Remove group refernce
+			}
+		}, group);
 	
 		// Ensure virtual network
-		Network network = ensureNetwork();
+		final CreationPlan.Step<Network> network = plan.add(new Callable<Network>() {
+			@Override
+			public Network call() throws Exception {
+				return ensureNetwork();
+			}
+		}, group);
 		
 		// Ensure subnet
-		Subnet subnet = ensureSubnet(network);
+		final CreationPlan.Step<Subnet> subnet = plan.add(new Callable<Subnet>() {
+			@Override
+			public Subnet call() throws Exception {
+				return ensureSubnet(network.result());
+			}
+		}, network);
 		
 		// Ensure public IP address
-		PublicIpAddress pip = ensurePublicIpAddress();
+		final CreationPlan.Step<PublicIpAddress> pip = plan.add(new Callable<PublicIpAddress>() {
+			@Override
+			public PublicIpAddress call() throws Exception {
+				return ensurePublicIpAddress();
+			}
+		}, group);
 		
 		// Ensure primary NIC
-		NetworkInterface nic = this.ensureNetworkInterface(group.name(), network, subnet, pip); // TODO Remove group reference
-		if(nic != null) {
-			this.withExistingNetworkInterface(nic);
-		}
+		final CreationPlan.Step<NetworkInterface> nic = plan.add(new Callable<NetworkInterface>() {
+			@Override
+			public NetworkInterface call() throws Exception {
+				return ensureNetworkInterface(group.result().name(), network.result(), subnet.result(), pip.result()); // TODO Remove group reference
+			}
+		}, group, network, subnet, pip);
 		
 		// Ensure availability set (optional)
-		AvailabilitySet set = this.ensureAvailabilitySet(group.name()); //TODO Remove group refereence?
-		if(set != null) {
-			this.withExistingAvailabilitySet(set);
+		final CreationPlan.Step<AvailabilitySet> set = plan.add(new Callable<AvailabilitySet>() {
+			@Override
+			public AvailabilitySet call() throws Exception {
+				return ensureAvailabilitySet(group.result().name()); //TODO Remove group refereence?
+			}
+		}, group);
+		
+		plan.run();
+		
+		if(nic.result() != null) {
+			this.withExistingNetworkInterface(nic.result());
+		}
+		
+		if(set.result() != null) {
+			this.withExistingAvailabilitySet(set.result());
 		}
 		
 		// Ensure default computer name
@@ -478,14 +573,15 @@ class VirtualMachineImpl
 		}
 		
 		// Ensure data disks
-		ensureDataDisks(storageAccount);
+		ensureDataDisks(storageAccount.result());
 		
-		URL container = new URL(storageAccount.primaryBlobEndpoint(), this.name() + "/");
+		URL container = new URL(storageAccount.result().primaryBlobEndpoint(), this.name() + "/");
 		URL diskBlob = new URL(container, "osDisk.vhd");
 		this.inner().getStorageProfile().getOSDisk().getVirtualHardDisk().setUri(diskBlob.toString());
 	
 		final Subscription subscription = this.subscription();
 		subscription.computeManagementClient().getVirtualMachinesOperations().createOrUpdate(this.resourceGroup(), this.inner());
+		this.collection.invalidate(this.groupName, this.name());
 		return subscription.virtualMachines().get(this.groupName, this.name());
 	}
 	
@@ -493,8 +589,8 @@ class VirtualMachineImpl
 	@Override
 	public VirtualMachineImpl refresh() throws Exception {
 		this.setInner(this.collection.getNativeEntity(
-			ResourcesImpl.groupFromResourceId(this.id()),
-			ResourcesImpl.nameFromResourceId(this.id())));
+			this.resourceId().resourceGroup(),
+			this.resourceId().name()));
 		return this;
 	}
 	
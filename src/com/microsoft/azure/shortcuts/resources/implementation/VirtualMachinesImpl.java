@@ -20,9 +20,19 @@
 package com.microsoft.azure.shortcuts.resources.implementation;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+import com.microsoft.azure.management.compute.VirtualMachineOperations;
 
 import com.microsoft.azure.management.compute.models.CachingTypes;
+import com.microsoft.azure.management.compute.models.ComputeOperationResponse;
 import com.microsoft.azure.management.compute.models.DiskCreateOptionTypes;
 import com.microsoft.azure.management.compute.models.HardwareProfile;
 import com.microsoft.azure.management.compute.models.ImageReference;
@@ -32,6 +42,12 @@ import com.microsoft.azure.management.compute.models.OSDisk;
 import com.microsoft.azure.management.compute.models.OSProfile;
 import com.microsoft.azure.management.compute.models.StorageProfile;
 import com.microsoft.azure.management.compute.models.VirtualHardDisk;
+import com.microsoft.azure.management.compute.models.VirtualMachineListResponse;
+import com.microsoft.azure.shortcuts.common.BatchResult;
+import com.microsoft.azure.shortcuts.common.Operation;
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+import com.microsoft.azure.shortcuts.common.implementation.BatchResultImpl;
+import com.microsoft.azure.shortcuts.common.implementation.PagedIterator;
 import com.microsoft.azure.shortcuts.resources.Size;
 import com.microsoft.azure.shortcuts.resources.VirtualMachine;
 import com.microsoft.azure.shortcuts.resources.VirtualMachines;
@@ -43,6 +59,48 @@ public class VirtualMachinesImpl
 		VirtualMachineImpl>
 	implements VirtualMachines {
 	
+	private static final int DEFAULT_POWER_PARALLELISM = 50;
+	
+	// The power operations that can be applied to a fleet of virtual machines
+	enum PowerOperation {
+		START("start") {
+			@Override
+			ComputeOperationResponse begin(VirtualMachineOperations operations, String groupName, String name) throws Exception {
+				return operations.beginStarting(groupName, name);
+			}
+		},
+		STOP("stop") {
+			@Override
+			ComputeOperationResponse begin(VirtualMachineOperations operations, String groupName, String name) throws Exception {
+				return operations.beginPoweringOff(groupName, name);
+			}
+		},
+		RESTART("restart") {
+			@Override
+			ComputeOperationResponse begin(VirtualMachineOperations operations, String groupName, String name) throws Exception {
+				return operations.beginRestarting(groupName, name);
+			}
+		},
+		DEALLOCATE("deallocate") {
+			@Override
+			ComputeOperationResponse begin(VirtualMachineOperations operations, String groupName, String name) throws Exception {
+				return operations.beginDeallocating(groupName, name);
+			}
+		};
+		
+		private final String verb;
+		private PowerOperation(String verb) {
+			this.verb = verb;
+		}
+		
+		abstract ComputeOperationResponse begin(VirtualMachineOperations operations, String groupName, String name) throws Exception;
+		
+		@Override
+		public String toString() {
+			return this.verb;
+		}
+	}
+	
 	VirtualMachinesImpl(Subscription subscription) {
 		super(subscription);
 	}
@@ -81,7 +139,105 @@ public class VirtualMachinesImpl
 	}
 	
 	@Override
-	public void delete(String groupName, String name) throws Exception {
+	public BatchResult startAll(Collection<String> ids, int parallelism) throws Exception {
+		return powerAll(ids, PowerOperation.START, parallelism);
+	}
+	
+	@Override
+	public BatchResult startAll(Collection<String> ids) throws Exception {
+		return startAll(ids, DEFAULT_POWER_PARALLELISM);
+	}
+	
+	@Override
+	public BatchResult stopAll(Collection<String> ids, int parallelism) throws Exception {
+		return powerAll(ids, PowerOperation.STOP, parallelism);
+	}
+	
+	@Override
+	public BatchResult stopAll(Collection<String> ids) throws Exception {
+		return stopAll(ids, DEFAULT_POWER_PARALLELISM);
+	}
+	
+	@Override
+	public BatchResult deallocateAll(Collection<String> ids, int parallelism) throws Exception {
+		return powerAll(ids, PowerOperation.DEALLOCATE, parallelism);
+	}
+	
+	@Override
+	public BatchResult deallocateAll(Collection<String> ids) throws Exception {
+		return deallocateAll(ids, DEFAULT_POWER_PARALLELISM);
+	}
+	
+	@Override
+	public List<String> idsTagged(String groupName, String tagName, String tagValue) throws Exception {
+		final List<String> ids = new ArrayList<>();
+		final Iterator<com.microsoft.azure.management.compute.models.VirtualMachine> vms = getNativeEntitiesIterator(groupName);
+		while(vms.hasNext()) {
+			final com.microsoft.azure.management.compute.models.VirtualMachine vm = vms.next();
+			if(vm.getTags() == null) {
+				continue;
+			}
+			
+			for(Map.Entry<String, String> tag : vm.getTags().entrySet()) {
+				if(tag.getKey().equalsIgnoreCase(tagName) && (tagValue == null || tagValue.equals(tag.getValue()))) {
+					ids.add(vm.getId());
+					break;
+				}
+			}
+		}
+		return ids;
+	}
+	
+	
+	// Starts a power operation on a virtual machine without reading it first, leaving it to the subscription's tracker
+	<T> Operation<T> beginPowerOperation(String id, PowerOperation operation, T result) throws Exception {
+		final ComputeOperationResponse response = operation.begin(
+			subscription.computeManagementClient().getVirtualMachinesOperations(), 
+			ResourcesImpl.groupFromResourceId(id), 
+			ResourcesImpl.nameFromResourceId(id));
+		return invalidating(id, subscription.operations().track(id, operation.toString(), response.getAzureAsyncOperation(), response.getRetryAfter(), result));
+	}
+	
+	
+	// Evicts the virtual machine from the cache once an operation on it is accepted and again once it completes,
+	// so that cached lookups do not keep reporting the state from before the operation
+	<T> Operation<T> invalidating(String id, Operation<T> operation) {
+		final String groupName = ResourcesImpl.groupFromResourceId(id);
+		final String name = ResourcesImpl.nameFromResourceId(id);
+		invalidate(groupName, name);
+		operation.future().whenComplete((ignored, e) -> invalidate(groupName, name));
+		return operation;
+	}
+	
+	
+	// Applies a power operation to each virtual machine, starting the next one as soon as one of the operations in flight completes.
+	// The operations are tracked by the shared poller, so no thread waits on any one of them
+	private BatchResult powerAll(Collection<String> ids, final PowerOperation operation, int parallelism) throws Exception {
+		final BatchResultImpl result = new BatchResultImpl();
+		final Semaphore permits = new Semaphore(Math.max(1, parallelism));
+		final List<CompletableFuture<Void>> outcomes = new ArrayList<>();
+		for(final String id : new LinkedHashSet<>(ids)) {
+			permits.acquire();
+			outcomes.add(Async.supply(() -> beginPowerOperation(id, operation, id), subscription.executor())
+				.thenCompose(Operation::future)
+				.handle((ignored, e) -> {
+					if(e == null) {
+						result.recordSuccess(id);
+					} else {
+						final Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+						result.recordFailure(id, (cause instanceof Exception) ? (Exception) cause : new Exception(cause));
+					}
+					permits.release();
+					return null;
+				}));
+		}
+		
+		CompletableFuture.allOf(outcomes.toArray(new CompletableFuture<?>[outcomes.size()])).get();
+		return result;
+	}
+	
+	@Override
+	protected void deleteNativeEntity(String groupName, String name) throws Exception {
 		subscription.computeManagementClient().getVirtualMachinesOperations().delete(groupName, name);
 	}
 
@@ -92,11 +248,26 @@ public class VirtualMachinesImpl
 	
 	@Override
 	protected List<com.microsoft.azure.management.compute.models.VirtualMachine> getNativeEntities(String groupName) throws Exception {
-		if(groupName != null) {
-			return subscription.computeManagementClient().getVirtualMachinesOperations().list(groupName).getVirtualMachines();
-		} else {
-			return subscription.computeManagementClient().getVirtualMachinesOperations().listAll(null).getVirtualMachines();
-		}
+		List<com.microsoft.azure.management.compute.models.VirtualMachine> nativeItems = new ArrayList<>();
+		getNativeEntitiesIterator(groupName).forEachRemaining(nativeItems::add);
+		return nativeItems;
+	}
+	
+	@Override
+	protected Iterator<com.microsoft.azure.management.compute.models.VirtualMachine> getNativeEntitiesIterator(final String groupName) {
+		return new PagedIterator<VirtualMachineListResponse, com.microsoft.azure.management.compute.models.VirtualMachine>(
+			nextLink -> {
+				VirtualMachineOperations operations = subscription.computeManagementClient().getVirtualMachinesOperations();
+				if(nextLink != null) {
+					return operations.listNext(nextLink);
+				} else if(groupName != null) {
+					return operations.list(groupName);
+				} else {
+					return operations.listAll(null);
+				}
+			},
+			VirtualMachineListResponse::getVirtualMachines,
+			VirtualMachineListResponse::getNextLink);
 	}
 	
 	@Override
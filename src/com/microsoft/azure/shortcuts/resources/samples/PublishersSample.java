@@ -22,6 +22,7 @@ package com.microsoft.azure.shortcuts.resources.samples;
 
 import java.util.Map;
 
+import com.microsoft.azure.shortcuts.common.BatchResult;
 import com.microsoft.azure.shortcuts.resources.Offer;
 import com.microsoft.azure.shortcuts.resources.Publisher;
 import com.microsoft.azure.shortcuts.resources.Region;
@@ -50,6 +51,11 @@ public class PublishersSample {
     	
     	publisher = subscription.publishers(Region.US_WEST, "Canonical");
     	printPublisher(publisher);
+    	
+    	// Crawl the image catalog of a region into the local index, then look up images without calling Azure
+    	BatchResult crawl = subscription.imageCatalog().crawl(Region.US_WEST);
+    	System.out.println(String.format("Crawled %d publishers, %d failed", crawl.succeeded().size(), crawl.failed().size()));
+    	System.out.println("Latest Ubuntu Server SKU: " + subscription.imageCatalog().latestSku(Region.US_WEST, "Canonical", "UbuntuServer"));
     }
     
     
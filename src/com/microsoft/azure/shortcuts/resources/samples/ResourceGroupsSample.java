@@ -63,6 +63,10 @@ public class ResourceGroupsSample {
 		ResourceGroup resourceGroup = subscription.resourceGroups(groupName);
 		printGroup(resourceGroup);
 		
+		// Read a specific resource group asynchronously
+		resourceGroup = subscription.resourceGroups().getAsync(groupName).get();
+		printGroup(resourceGroup);
+		
 		// Update a resource group
 		subscription.resourceGroups().update(groupName)
 			.withTag("foo", "bar")
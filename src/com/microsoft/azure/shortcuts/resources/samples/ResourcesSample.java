@@ -40,6 +40,9 @@ public class ResourcesSample {
     
 
     public static void test(Subscription subscription) throws Exception {
+    	// Pre-load the API versions of all providers, so that getting or deleting resources by ID needs no extra lookups
+    	subscription.apiVersions().warmUp();
+    	
     	// Listing all resource names
     	Map<String, Resource> resources = subscription.resources().asMap();
     	System.out.println(String.format("Resource ids: %s\n\t", StringUtils.join(resources.keySet(), ",\n\t")));
@@ -19,6 +19,7 @@
 */
 package com.microsoft.azure.shortcuts.services;
 
+import com.microsoft.azure.shortcuts.common.SupportsBatchDeleting;
 import com.microsoft.azure.shortcuts.common.SupportsCreating;
 import com.microsoft.azure.shortcuts.common.SupportsDeleting;
 import com.microsoft.azure.shortcuts.common.SupportsListingNames;
@@ -27,6 +28,7 @@ import com.microsoft.azure.shortcuts.common.SupportsGetting;
 public interface Networks extends
 	SupportsCreating<Network.DefinitionBlank>,
 	SupportsDeleting,
+	SupportsBatchDeleting,
 	SupportsListingNames,
 	SupportsGetting<Network> {
 }
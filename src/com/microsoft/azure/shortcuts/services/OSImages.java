@@ -19,10 +19,33 @@
 */
 package com.microsoft.azure.shortcuts.services;
 
+import java.util.List;
+
 import com.microsoft.azure.shortcuts.common.SupportsListingAsMap;
 import com.microsoft.azure.shortcuts.common.SupportsGetting;
 
 public interface OSImages extends
 	SupportsListingAsMap<OSImage>,
 	SupportsGetting<OSImage>  {
+	
+	/**
+	 * @param family The image family, such as "Ubuntu Server 14.04 LTS", matched case-insensitively
+	 * @param region The region the image must be available in, such as "West US", or null for any
+	 * @return The most recently published image of the family
+	 * @throws Exception
+	 */
+	OSImage latest(String family, String region) throws Exception;
+	
+	OSImage latest(String family) throws Exception;
+	
+	/**
+	 * Finds the images matching all the specified criteria, each matched case-insensitively
+	 * @param family The image family, or null for any
+	 * @param publisher The publisher name, or null for any
+	 * @param operatingSystemType The operating system type, such as "Linux", or null for any
+	 * @param region The region the image must be available in, or null for any
+	 * @return The matching images, most recently published first
+	 * @throws Exception
+	 */
+	List<OSImage> find(String family, String publisher, String operatingSystemType, String region) throws Exception;
 }
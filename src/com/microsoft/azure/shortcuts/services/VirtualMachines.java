@@ -19,6 +19,12 @@
 */
 package com.microsoft.azure.shortcuts.services;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.shortcuts.common.BatchResult;
 import com.microsoft.azure.shortcuts.common.SupportsCreating;
 import com.microsoft.azure.shortcuts.common.SupportsDeleting;
 import com.microsoft.azure.shortcuts.common.SupportsListingNames;
@@ -29,4 +35,36 @@ public interface VirtualMachines extends
 	SupportsGetting<VirtualMachine>,
 	SupportsListingNames,
 	SupportsDeleting {
+	
+	/**
+	 * Lists the names of the virtual machines, looking up the production deployments of several cloud services concurrently
+	 * @param parallelism The maximum number of deployment lookups in flight at the same time
+	 * @param timeout The maximum time to wait for all the deployment lookups; cloud services not read by then are reported as failures
+	 * @param unit The unit of the timeout
+	 * @param failures If not null, receives the error for each cloud service whose deployment could not be read, keyed by service name
+	 * @return The names of the virtual machines found, as "<cloud-service-name>.<vm-name>"
+	 * @throws Exception
+	 */
+	List<String> names(int parallelism, long timeout, TimeUnit unit, Map<String, Exception> failures) throws Exception;
+	
+	/**
+	 * Gets several virtual machines, reading each deployment and each cloud service only once for all the VMs they contain
+	 * @param ids The IDs of the virtual machines, in the same format as accepted by get()
+	 * @param failures If not null, receives the error for each virtual machine that could not be read, keyed by ID
+	 * @return The virtual machines read successfully, keyed by ID
+	 * @throws Exception
+	 */
+	Map<String, VirtualMachine> getAll(Collection<String> ids, Map<String, Exception> failures) throws Exception;
+	
+	/**
+	 * Refreshes several virtual machines, grouping them by cloud service and deployment so that each deployment 
+	 * and each cloud service is read only once
+	 * @param vms The virtual machines to refresh
+	 * @param parallelism The maximum number of deployment and cloud service reads in flight at the same time
+	 * @return The outcome for each virtual machine, keyed by ID
+	 * @throws Exception
+	 */
+	BatchResult refreshAll(Collection<VirtualMachine> vms, int parallelism) throws Exception;
+	
+	BatchResult refreshAll(Collection<VirtualMachine> vms) throws Exception;
 }
@@ -20,7 +20,20 @@
 
 package com.microsoft.azure.shortcuts.services.implementation;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import com.microsoft.azure.shortcuts.common.CallRecorder;
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+import com.microsoft.azure.shortcuts.common.implementation.InstrumentedClient;
+import com.microsoft.azure.shortcuts.common.implementation.MetadataCatalog;
+import com.microsoft.azure.shortcuts.common.implementation.SharedConnectionPool;
+import com.microsoft.azure.shortcuts.common.implementation.Snapshot;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 
 import com.microsoft.azure.shortcuts.services.CloudService;
 import com.microsoft.azure.shortcuts.services.CloudServices;
@@ -36,6 +49,8 @@ import com.microsoft.azure.shortcuts.services.StorageAccounts;
 import com.microsoft.azure.shortcuts.services.VirtualMachine;
 import com.microsoft.azure.shortcuts.services.VirtualMachines;
 import com.microsoft.windowsazure.Configuration;
+import com.microsoft.windowsazure.core.FilterableService;
+import com.microsoft.windowsazure.management.configuration.ManagementConfiguration;
 import com.microsoft.windowsazure.management.configuration.PublishSettingsLoader;
 import com.microsoft.windowsazure.management.ManagementClient;
 import com.microsoft.windowsazure.management.ManagementService;
@@ -46,12 +61,19 @@ import com.microsoft.windowsazure.management.storage.StorageManagementService;
 import com.microsoft.windowsazure.management.compute.ComputeManagementClient;
 import com.microsoft.windowsazure.management.compute.ComputeManagementService;
 
-public class Azure {
-	private Configuration configuration= null;
-	private ManagementClient management = null;
-	private ComputeManagementClient compute = null;
-	private StorageManagementClient storage = null;
-	private NetworkManagementClient networking = null;
+public class Azure implements ExecutorProvider {
+	private final Configuration configuration;
+	private volatile Executor executor = Async.defaultExecutor();
+	private volatile ManagementClient management = null;
+	private volatile ComputeManagementClient compute = null;
+	private volatile StorageManagementClient storage = null;
+	private volatile NetworkManagementClient networking = null;
+	
+	public static final long DEFAULT_SNAPSHOT_MAX_AGE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+	private volatile long snapshotMaxAgeMillis = DEFAULT_SNAPSHOT_MAX_AGE_MILLIS;
+	private final List<Snapshot<?>> snapshots = new CopyOnWriteArrayList<>();
+	private volatile MetadataCatalog metadataCatalog = null;
+	private volatile CallRecorder callRecorder = null;
 	
 	private final RegionsImpl regions = new RegionsImpl(this);
 	private final SizesImpl sizes = new SizesImpl(this);
@@ -73,7 +95,130 @@ public class Azure {
 	}
 	
 	private Azure(String publishSettingsPath, String subscriptionId) throws IOException {
-		this.configuration = PublishSettingsLoader.createManagementConfiguration(publishSettingsPath, subscriptionId);
+		this.configuration = SharedConnectionPool.applyTo(
+			PublishSettingsLoader.createManagementConfiguration(publishSettingsPath, subscriptionId));
+	}
+	
+	
+	/**
+	 * Sets the executor running the asynchronous variants of the verbs, such as createAsync() or getAsync(). 
+	 * By default, a shared pool of daemon threads is used. On Java 21 or later, a virtual thread per task executor works well.
+	 * @param executor The executor to use
+	 * @return This Azure client
+	 */
+	public Azure withExecutor(Executor executor) {
+		this.executor = (executor != null) ? executor : Async.defaultExecutor();
+		return this;
+	}
+	
+	
+	/**
+	 * Creates all the underlying management clients up front rather than on first use, so that the first calls
+	 * made concurrently from several threads do not pay for client construction. The clients share one pool of HTTP connections.
+	 * @return This Azure client
+	 */
+	public Azure withEagerClients() {
+		this.managementClient();
+		this.computeManagementClient();
+		this.storageManagementClient();
+		this.networkManagementClient();
+		return this;
+	}
+	
+	
+	/**
+	 * Reports every call made to Azure to the specified recorder, with its operation, resource type, status and latency. 
+	 * A CallMetrics instance aggregates them into latency histograms and counters
+	 * @param recorder The recorder, or null to stop recording
+	 * @return This Azure client
+	 */
+	public Azure withCallRecorder(CallRecorder recorder) {
+		this.callRecorder = recorder;
+		return this;
+	}
+	
+	
+	/**
+	 * Sets how long a listing of networks, regions or OS images is reused by the lookups against it before being fetched again.
+	 * Lookups made while a listing is being fetched wait for it rather than fetching their own
+	 * @param duration The maximum age of a listing, or 0 to fetch one for every lookup
+	 * @param unit The unit of the duration
+	 * @return This Azure client
+	 */
+	public Azure withSnapshotMaxAge(long duration, TimeUnit unit) {
+		this.snapshotMaxAgeMillis = unit.toMillis(duration);
+		for(Snapshot<?> snapshot : this.snapshots) {
+			snapshot.setMaxAge(this.snapshotMaxAgeMillis);
+		}
+		return this;
+	}
+	
+	
+	/**
+	 * Discards the listings of networks, regions and OS images, so that the next lookups fetch them again
+	 */
+	public void invalidateSnapshots() {
+		for(Snapshot<?> snapshot : this.snapshots) {
+			snapshot.invalidate();
+		}
+	}
+	
+	
+	/**
+	 * Serves reference data that rarely changes - regions, VM sizes and OS images - from a catalog stored in the specified file, 
+	 * so that a new process does not need to fetch it again. Data older than a day is served as is and revalidated in the background
+	 * @param file The catalog file, created if it does not exist
+	 * @return This Azure client
+	 */
+	public Azure withMetadataCatalog(File file) {
+		this.metadataCatalog = new MetadataCatalog(file, this);
+		this.invalidateSnapshots();
+		return this;
+	}
+	
+	
+	/**
+	 * Serves reference data from a catalog stored in the user's home directory, under .azure-shortcuts
+	 * @return This Azure client
+	 */
+	public Azure withMetadataCatalog() {
+		return this.withMetadataCatalog(new File(new File(System.getProperty("user.home"), ".azure-shortcuts"), 
+			String.format("metadata-classic-%s.tsv", this.subscriptionId())));
+	}
+	
+	
+	// Returns the ID of the subscription, as loaded from the publish settings file rather than as requested, since without one the first is picked
+	String subscriptionId() {
+		return String.valueOf(this.configuration.getProperty(ManagementConfiguration.SUBSCRIPTION_ID));
+	}
+	
+	
+	/**
+	 * Serves reference data from the metadata catalog only, never revalidating it, as suits short-lived processes. 
+	 * Data missing from the catalog is still fetched once. Uses the default catalog if none was set
+	 * @return This Azure client
+	 */
+	public Azure withOfflineMetadata() {
+		if(this.metadataCatalog == null) {
+			this.withMetadataCatalog();
+		}
+		this.metadataCatalog.withOffline(true);
+		return this;
+	}
+	
+	
+	// Returns reference data from the metadata catalog if there is one, or fetches it
+	<T> T metadata(String key, Snapshot.Loader<T> fetcher, MetadataCatalog.Codec<T> codec) throws Exception {
+		MetadataCatalog catalog = this.metadataCatalog;
+		return (catalog != null) ? catalog.get(key, fetcher, codec) : fetcher.load();
+	}
+	
+	
+	// Creates a snapshot of a listing, governed by the maximum age set on this client
+	<T> Snapshot<T> snapshot(Snapshot.Loader<T> loader) {
+		Snapshot<T> snapshot = new Snapshot<>(loader, this.snapshotMaxAgeMillis);
+		this.snapshots.add(snapshot);
+		return snapshot;
 	}
 	
 	
@@ -81,6 +226,15 @@ public class Azure {
 	 * Getters
 	 ******************************************************/
 	
+	/**
+	 * @return The executor running the asynchronous variants of the verbs
+	 */
+	@Override
+	public Executor executor() {
+		return this.executor;
+	}
+	
+	
 	/**
 	 * @return The interface exposing functionality related to cloud services
 	 */
@@ -164,42 +318,72 @@ public class Azure {
 	}
 	
 	
+	// Puts the call instrumentation in front of a newly created management client
+	private <T extends FilterableService<T>> T instrument(Class<T> type, T client, String provider) {
+		return InstrumentedClient.wrap(type, InstrumentedClient.observe(client), provider, () -> this.callRecorder);
+	}
+	
+	
 	// Returns the management client, creating it as needed
 	ManagementClient managementClient() {
-		if(this.management == null) {
-			this.management = ManagementService.create(configuration);
+		ManagementClient client = this.management;
+		if(client == null) {
+			synchronized(this) {
+				client = this.management;
+				if(client == null) {
+					this.management = client = this.instrument(ManagementClient.class, ManagementService.create(configuration), "Microsoft.ClassicManagement");
+				}
+			}
 		}
 		
-		return this.management;
+		return client;
 	}
-	
-	
+
+
 	// Returns the compute management client, creating it as needed
 	ComputeManagementClient computeManagementClient() {
-		if(this.compute == null) {
-			this.compute = ComputeManagementService.create(configuration);
+		ComputeManagementClient client = this.compute;
+		if(client == null) {
+			synchronized(this) {
+				client = this.compute;
+				if(client == null) {
+					this.compute = client = this.instrument(ComputeManagementClient.class, ComputeManagementService.create(configuration), "Microsoft.ClassicCompute");
+				}
+			}
 		}
 		
-		return this.compute;
+		return client;
 	}
-	
-	
+
+
 	// Returns the storage management client, creating it as needed
 	StorageManagementClient storageManagementClient() {
-		if(this.storage == null) {
-			this.storage = StorageManagementService.create(configuration);
+		StorageManagementClient client = this.storage;
+		if(client == null) {
+			synchronized(this) {
+				client = this.storage;
+				if(client == null) {
+					this.storage = client = this.instrument(StorageManagementClient.class, StorageManagementService.create(configuration), "Microsoft.ClassicStorage");
+				}
+			}
 		}
 		
-		return this.storage;
+		return client;
 	}
-	
-	
+
+
 	// Returns the network management client, creating as needed
 	NetworkManagementClient networkManagementClient() {
-		if(this.networking == null) {
-			this.networking = NetworkManagementService.create(configuration);
+		NetworkManagementClient client = this.networking;
+		if(client == null) {
+			synchronized(this) {
+				client = this.networking;
+				if(client == null) {
+					this.networking = client = this.instrument(NetworkManagementClient.class, NetworkManagementService.create(configuration), "Microsoft.ClassicNetwork");
+				}
+			}
 		}
 		
-		return this.networking;
+		return client;
 	}
 }
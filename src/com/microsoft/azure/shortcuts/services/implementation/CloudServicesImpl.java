@@ -24,8 +24,10 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableRefreshableWrapperImpl;
 import com.microsoft.azure.shortcuts.services.CloudService;
 import com.microsoft.azure.shortcuts.services.CloudServices;
@@ -108,11 +110,17 @@ public class CloudServicesImpl
 			CloudService.DefinitionBlank, 
 			CloudService.DefinitionProvisionable,
 			CloudService,
-			CloudService.Update {
+			CloudService.Update,
+			ExecutorProvider {
 		
 		private CloudServiceImpl(HostedService azureService) {
 			super(azureService.getServiceName().toLowerCase(), azureService);
 		}
+		
+		@Override
+		public Executor executor() {
+			return CloudServicesImpl.this.executor();
+		}
 
 
 		/***********************************************************
@@ -0,0 +1,192 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.services.implementation;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import com.microsoft.azure.shortcuts.services.implementation.NetworkConfigQueue.Mutation;
+
+// Applies virtual network site additions and removals to a classic network configuration in a single streaming pass,
+// copying everything else through as is instead of building and serializing a DOM of the whole configuration
+final class NetworkConfigEditor {
+	private static final List<String> SITES_PATH = Arrays.asList("NetworkConfiguration", "VirtualNetworkConfiguration", "VirtualNetworkSites");
+	private static final String SITE = "VirtualNetworkSite";
+	private static final QName NAME = new QName("name");
+	
+	// StAX factories are thread safe once configured, so they are shared
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+	static {
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+	
+	// Marks an existing site left as is by the changes to it
+	private static final Mutation ORIGINAL = new Mutation(null, null, null);
+	
+	private NetworkConfigEditor() {
+	}
+	
+	
+	/**
+	 * Applies the changes to the network configuration in order, as if each one was applied on its own.
+	 * A change that does not fit the configuration, such as creating an existing network, is rejected without affecting the others
+	 * @param xml The network configuration
+	 * @param mutations The changes to apply
+	 * @param rejected Receives the changes that were not applied, with the reason why
+	 * @return The updated network configuration
+	 * @throws XMLStreamException
+	 */
+	static String apply(String xml, List<Mutation> mutations, Map<Mutation, Exception> rejected) throws XMLStreamException {
+		// Group the changes by network name, keeping their order
+		final Map<String, List<Mutation>> changesByName = new LinkedHashMap<>();
+		for(Mutation mutation : mutations) {
+			List<Mutation> changes = changesByName.get(mutation.name);
+			if(changes == null) {
+				changes = new ArrayList<>();
+				changesByName.put(mutation.name, changes);
+			}
+			changes.add(mutation);
+		}
+		
+		final StringWriter out = new StringWriter(xml.length() + 1024);
+		final XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(new StringReader(xml));
+		final XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(out);
+		final List<String> path = new ArrayList<>();
+		try {
+			while(reader.hasNext()) {
+				final XMLEvent event = reader.nextEvent();
+				if(event.isStartElement()) {
+					final StartElement start = event.asStartElement();
+					final String localName = start.getName().getLocalPart();
+					if(SITE.equals(localName) && path.equals(SITES_PATH)) {
+						final Attribute name = start.getAttributeByName(NAME);
+						final List<Mutation> changes = changesByName.remove((name != null) ? name.getValue() : null);
+						final Mutation result = (changes != null) ? resolve(changes, true, rejected) : ORIGINAL;
+						if(result != ORIGINAL) {
+							// Drop the existing site, putting the replacement if any in its place
+							skipElement(reader);
+							if(result != null) {
+								writeFragment(writer, result.siteXml);
+							}
+							continue;
+						}
+					}
+					path.add(localName);
+				} else if(event.isEndElement()) {
+					if(path.equals(SITES_PATH)) {
+						// Add the new sites at the end of the existing ones
+						for(List<Mutation> changes : changesByName.values()) {
+							final Mutation result = resolve(changes, false, rejected);
+							if(result != null) {
+								writeFragment(writer, result.siteXml);
+							}
+						}
+						changesByName.clear();
+					}
+					path.remove(path.size() - 1);
+				}
+				
+				writer.add(event);
+			}
+			writer.flush();
+		} finally {
+			reader.close();
+			writer.close();
+		}
+		
+		// Changes left over when the configuration has no virtual network sites at all
+		for(List<Mutation> changes : changesByName.values()) {
+			for(Mutation mutation : changes) {
+				rejected.put(mutation, new IllegalStateException("Virtual network sites not found in the network configuration."));
+			}
+		}
+		
+		return out.toString();
+	}
+	
+	
+	// Plays the changes to one network in order, rejecting the ones that do not fit and returning what the network ends up as:
+	// ORIGINAL if the existing site is kept, the creating change if it is replaced or added, or null if it is removed
+	private static Mutation resolve(List<Mutation> changes, boolean exists, Map<Mutation, Exception> rejected) {
+		Mutation result = exists ? ORIGINAL : null;
+		for(Mutation mutation : changes) {
+			if(mutation.kind == Mutation.Kind.CREATE) {
+				if(result != null) {
+					rejected.put(mutation, new IllegalStateException(String.format("Virtual network '%s' already exists.", mutation.name)));
+				} else {
+					result = mutation;
+				}
+			} else if(result == null) {
+				rejected.put(mutation, new NoSuchElementException(String.format("Virtual network '%s' not found.", mutation.name)));
+			} else {
+				result = null;
+			}
+		}
+		
+		return result;
+	}
+	
+	
+	// Skips the rest of the element whose start was just read
+	private static void skipElement(XMLEventReader reader) throws XMLStreamException {
+		for(int depth = 1; depth > 0; ) {
+			final XMLEvent event = reader.nextEvent();
+			if(event.isStartElement()) {
+				depth++;
+			} else if(event.isEndElement()) {
+				depth--;
+			}
+		}
+	}
+	
+	
+	// Writes the XML element without its document prolog, so that it inherits the namespace of its new parent
+	private static void writeFragment(XMLEventWriter writer, String xml) throws XMLStreamException {
+		final XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(new StringReader(xml));
+		try {
+			while(reader.hasNext()) {
+				final XMLEvent event = reader.nextEvent();
+				if(!event.isStartDocument() && !event.isEndDocument()) {
+					writer.add(event);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+}
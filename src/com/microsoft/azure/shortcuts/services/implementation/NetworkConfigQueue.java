@@ -0,0 +1,184 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.services.implementation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.microsoft.windowsazure.exception.ServiceException;
+import com.microsoft.windowsazure.management.network.models.NetworkSetConfigurationParameters;
+
+// Merges concurrent and queued changes to the subscription's virtual network configuration, so that all the changes
+// waiting while a previous update is in flight are applied in a single get/patch/set round trip
+class NetworkConfigQueue {
+	static final int MAX_ATTEMPTS = 5;
+	static final long RETRY_DELAY_MILLIS = 1000;
+	
+	private final Azure azure;
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final List<Mutation> pending = new ArrayList<>();
+	
+	NetworkConfigQueue(Azure azure) {
+		this.azure = azure;
+	}
+	
+	
+	// A single change to the network configuration, completed with its own outcome once the batch it was part of is applied
+	static final class Mutation {
+		enum Kind { CREATE, DELETE }
+		
+		final Kind kind;
+		final String name;
+		final String siteXml;
+		final CompletableFuture<Void> outcome = new CompletableFuture<>();
+		
+		Mutation(Kind kind, String name, String siteXml) {
+			this.kind = kind;
+			this.name = name;
+			this.siteXml = siteXml;
+		}
+	}
+	
+	
+	// Adds the virtual network site described by the XML to the configuration
+	static Mutation create(String name, String siteXml) {
+		return new Mutation(Mutation.Kind.CREATE, name, siteXml);
+	}
+	
+	
+	// Removes the named virtual network site from the configuration
+	static Mutation delete(String name) {
+		return new Mutation(Mutation.Kind.DELETE, name, null);
+	}
+	
+	
+	// Queues the mutation and waits for its outcome, throwing its own failure if any
+	void run(Mutation mutation) throws Exception {
+		List<Mutation> mutations = new ArrayList<>();
+		mutations.add(mutation);
+		runAll(mutations);
+		try {
+			mutation.outcome.get();
+		} catch(ExecutionException e) {
+			throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+		}
+	}
+	
+	
+	// Queues the mutations and waits until all of them have been applied or have failed
+	void runAll(Collection<Mutation> mutations) {
+		synchronized(this.pending) {
+			this.pending.addAll(mutations);
+		}
+		
+		// Whoever holds the lock applies everything queued so far; by the time this caller gets it,
+		// its own mutations have either been applied by a previous holder or are still pending
+		this.flushLock.lock();
+		try {
+			final List<Mutation> batch;
+			synchronized(this.pending) {
+				batch = new ArrayList<>(this.pending);
+				this.pending.clear();
+			}
+			
+			if(!batch.isEmpty()) {
+				apply(batch);
+			}
+		} finally {
+			this.flushLock.unlock();
+		}
+	}
+	
+	
+	// Applies the batch in a single read-modify-write of the network configuration, re-reading and retrying on conflicts
+	private void apply(List<Mutation> batch) {
+		for(int attempt = 1; ; attempt++) {
+			final List<Mutation> applied = new ArrayList<>();
+			try {
+				// Get current network configuration, correcting for garbage prefix in XML returned by Azure
+				String xml = this.azure.networkManagementClient().getNetworksOperations().getConfiguration().getConfiguration();
+				xml = xml.substring(xml.indexOf('<'));
+				
+				// Apply the changes still waiting in a single pass, failing only the ones that do not fit the current configuration
+				final List<Mutation> waiting = new ArrayList<>();
+				for(Mutation mutation : batch) {
+					if(!mutation.outcome.isDone()) {
+						waiting.add(mutation);
+					}
+				}
+				
+				final Map<Mutation, Exception> rejected = new HashMap<>();
+				final String newConfig = NetworkConfigEditor.apply(xml, waiting, rejected);
+				for(Mutation mutation : waiting) {
+					final Exception e = rejected.get(mutation);
+					if(e != null) {
+						mutation.outcome.completeExceptionally(e);
+					} else {
+						applied.add(mutation);
+					}
+				}
+				
+				if(applied.isEmpty()) {
+					return;
+				}
+				
+				NetworkSetConfigurationParameters params = new NetworkSetConfigurationParameters();
+				params.setConfiguration(newConfig);
+				this.azure.networkManagementClient().getNetworksOperations().setConfiguration(params);
+				for(Mutation mutation : applied) {
+					mutation.outcome.complete(null);
+				}
+				return;
+			} catch(Exception e) {
+				if(attempt < MAX_ATTEMPTS && isConflict(e)) {
+					try {
+						Thread.sleep(RETRY_DELAY_MILLIS << (attempt - 1));
+						continue;
+					} catch(InterruptedException ie) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				
+				for(Mutation mutation : batch) {
+					mutation.outcome.completeExceptionally(e);
+				}
+				return;
+			}
+		}
+	}
+	
+	
+	// Determines whether the failure is due to another update of the network configuration in progress
+	private static boolean isConflict(Throwable e) {
+		for(Throwable t = e; t != null; t = t.getCause()) {
+			if(t instanceof ServiceException) {
+				final int status = ((ServiceException) t).getHttpStatusCode();
+				return status == 409 || status == 412;
+			}
+		}
+		return false;
+	}
+}
@@ -20,20 +20,26 @@
 package com.microsoft.azure.shortcuts.services.implementation;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 
+import com.microsoft.azure.shortcuts.common.BatchResult;
+import com.microsoft.azure.shortcuts.common.implementation.BatchResultImpl;
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableImpl;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableRefreshableWrapperImpl;
-import com.microsoft.azure.shortcuts.common.implementation.Utils;
+import com.microsoft.azure.shortcuts.common.implementation.Snapshot;
 import com.microsoft.azure.shortcuts.services.Network;
 import com.microsoft.azure.shortcuts.services.Networks;
 import com.microsoft.azure.shortcuts.services.Region;
-import com.microsoft.windowsazure.management.network.models.NetworkSetConfigurationParameters;
 import com.microsoft.windowsazure.management.network.models.NetworkListResponse.AddressSpace;
 import com.microsoft.windowsazure.management.network.models.NetworkListResponse.VirtualNetworkSite;
 
@@ -42,8 +48,19 @@ public class NetworksImpl
 	extends EntitiesImpl<Azure>
 	implements Networks {
 	
+	private final NetworkConfigQueue configQueue;
+	private final Snapshot<Map<String, VirtualNetworkSite>> sites;
+	
 	NetworksImpl(Azure azure) {
 		super(azure);
+		this.configQueue = new NetworkConfigQueue(azure);
+		this.sites = azure.snapshot(() -> {
+			Map<String, VirtualNetworkSite> byName = new LinkedHashMap<>();
+			for(VirtualNetworkSite site : this.subscription.networkManagementClient().getNetworksOperations().list().getVirtualNetworkSites()) {
+				byName.put(site.getName(), site);
+			}
+			return Collections.unmodifiableMap(byName);
+		});
 	}
 
 	
@@ -64,24 +81,45 @@ public class NetworksImpl
 	@Override
 	// Deletes the specified network
 	public void delete(String name) throws Exception {
-		//  XPath to the network XML to delete
-		final String xpath = String.format(
-				"/*[local-name()='NetworkConfiguration']"
-				+ "/*[local-name()='VirtualNetworkConfiguration']"
-				+ "/*[local-name()='VirtualNetworkSites']"
-				+ "/*[local-name()='VirtualNetworkSite' and @name='%s']", name);
+		try {
+			this.configQueue.run(NetworkConfigQueue.delete(name));
+		} finally {
+			this.sites.invalidate();
+		}
+	}
+	
+	
+	@Override
+	// Deletes the specified networks in a single update of the network configuration, so parallelism does not apply
+	public BatchResult deleteAll(Collection<String> names, int parallelism) throws Exception {
+		final Map<String, NetworkConfigQueue.Mutation> mutations = new LinkedHashMap<>();
+		for(String name : names) {
+			mutations.put(name, NetworkConfigQueue.delete(name));
+		}
 		
-		// Get current network configuration
-		String networkConfig = subscription.networkManagementClient().getNetworksOperations().getConfiguration().getConfiguration();
+		try {
+			this.configQueue.runAll(mutations.values());
+		} finally {
+			this.sites.invalidate();
+		}
 		
-		// Correct for garbage prefix in XML returned by Azure
-		networkConfig = networkConfig.substring(networkConfig.indexOf('<'));
-
-		// Delete the network from the config using the xpath
-		final String newConfig = Utils.deleteXMLElement(networkConfig, xpath);
+		final BatchResultImpl result = new BatchResultImpl();
+		for(Map.Entry<String, NetworkConfigQueue.Mutation> entry : mutations.entrySet()) {
+			try {
+				entry.getValue().outcome.get();
+				result.recordSuccess(entry.getKey());
+			} catch(ExecutionException e) {
+				result.recordFailure(entry.getKey(), (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e);
+			}
+		}
 		
-		// Update the network configuration
-		updateNetworkConfig(newConfig);
+		return result;
+	}
+	
+	
+	@Override
+	public BatchResult deleteAll(Collection<String> names) throws Exception {
+		return deleteAll(names, 1);
 	}
 	
 	
@@ -89,13 +127,7 @@ public class NetworksImpl
 	// Lists existing virtual networks
 	public List<String> names() {
 		try {
-			final ArrayList<VirtualNetworkSite> items = 
-				subscription.networkManagementClient().getNetworksOperations().list().getVirtualNetworkSites();
-			ArrayList<String> names = new ArrayList<>();
-			for(VirtualNetworkSite item : items) {
-				names.add(item.getName());
-			}
-			return names;
+			return new ArrayList<>(this.sites.get().keySet());
 		} catch (Exception e) {
 			// Not very actionable, so just return an empty array
 			return new ArrayList<>();
@@ -107,14 +139,6 @@ public class NetworksImpl
 	 * Helpers
 	 *******************************************************/
 	
-	// Requests a network configuration update based on the XML netconfig representation
-	private void updateNetworkConfig(String xml) throws Exception {
-		NetworkSetConfigurationParameters params = new NetworkSetConfigurationParameters();
-		params.setConfiguration(xml);
-		subscription.networkManagementClient().getNetworksOperations().setConfiguration(params);
-	}
-	
-	
 	// Wraps a native VirtualNetworkSite
 	private NetworkImpl createVirtualNetworkWrapper(String name)
 	{
@@ -137,11 +161,17 @@ public class NetworksImpl
 			Network.DefinitionWithAddressSpace, 
 			Network.DefinitionProvisionable,
 			Network.UpdateBlank,
-			Network {
+			Network,
+			ExecutorProvider {
 
 		public NetworkImpl(VirtualNetworkSite site) {
 			super(site.getName(), site);
 		}
+		
+		@Override
+		public Executor executor() {
+			return NetworksImpl.this.executor();
+		}
 
 
 		/***********************************************************
@@ -297,22 +327,12 @@ public class NetworksImpl
 				.replace("${addressSpace}", addressSpaceSection.toString())
 				.replace("${subnets}", subnetsSection.toString());
 			
-			// Get current network configuration
-			String networkConfig = subscription.networkManagementClient().getNetworksOperations().getConfiguration().getConfiguration();
-			
-			// Correct for garbage prefix in XML returned by Azure
-			networkConfig = networkConfig.substring(networkConfig.indexOf('<'));
-			
-			// XPath to the parent of virtual networks in network configuration XML
-			final String parentXPath = "/*[local-name()='NetworkConfiguration']"
-				+ "/*[local-name()='VirtualNetworkConfiguration']"
-				+ "/*[local-name()='VirtualNetworkSites']";				
-
-			// Add the new network to the configuration
-			String newConfig = Utils.insertXMLElement(networkConfig, networkDescription, parentXPath);
-			
-			// Submit the new network config to Azure
-			updateNetworkConfig(newConfig);
+			// Submit the new network to be merged into the network config along with any concurrent changes
+			try {
+				configQueue.run(NetworkConfigQueue.create(this.inner().getName(), networkDescription));
+			} finally {
+				sites.invalidate();
+			}
 			
 			return this;
 		}
@@ -320,13 +340,10 @@ public class NetworksImpl
 
 		@Override
 		public NetworkImpl refresh() throws Exception {
-			ArrayList<VirtualNetworkSite> azureSites = subscription.networkManagementClient().getNetworksOperations().list().getVirtualNetworkSites();
-			
-			for(VirtualNetworkSite s : azureSites) {
-				if(s.getName().equals(this.inner().getName())) {
-					this.setInner(s);
-					return this;
-				}
+			VirtualNetworkSite site = sites.get().get(this.inner().getName());
+			if(site != null) {
+				this.setInner(site);
+				return this;
 			}
 			
 			throw new NoSuchElementException(String.format("Virtual network '%s' not found.", this.inner().getName()));
@@ -0,0 +1,298 @@
+/**
+* Copyright (c) Microsoft Corporation
+* 
+* All rights reserved. 
+* 
+* MIT License
+* 
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated documentation files 
+* (the "Software"), to deal in the Software without restriction, including without limitation the rights to use, copy, modify, merge, 
+* publish, distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the Software is furnished to do so, 
+* subject to the following conditions:
+* 
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions of the Software.
+* 
+* THE SOFTWARE IS PROVIDED *AS IS*, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF 
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR 
+* ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH 
+* THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+package com.microsoft.azure.shortcuts.services.implementation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import com.microsoft.azure.shortcuts.services.OSImage;
+import com.microsoft.windowsazure.management.compute.models.VirtualMachineOSImageListResponse.VirtualMachineOSImage;
+
+// Immutable index of the classic OS images by name, and by family, publisher, operating system type and region with each
+// bucket ordered newest first, so that picking the latest image of a family in a region is a single read.
+// The index holds the listed images only; each lookup wraps the images it returns, so that callers never share wrappers
+final class OSImageIndex {
+	static final OSImageIndex EMPTY = new OSImageIndex(
+		new TreeMap<String, Entry>(), 
+		new HashMap<String, NavigableSet<Entry>>());
+	
+	// An indexed image
+	private static final class Entry {
+		final VirtualMachineOSImage image;
+		final String name;
+		final long publishedAt;
+		
+		Entry(VirtualMachineOSImage image) {
+			this.image = image;
+			this.name = image.getName();
+			this.publishedAt = (image.getPublishedDate() != null) ? image.getPublishedDate().getTimeInMillis() : Long.MIN_VALUE;
+		}
+	}
+	
+	// Orders images by published date, newest first and undated last, then by name
+	private static final Comparator<Entry> NEWEST_FIRST = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry a, Entry b) {
+			final int c = Long.compare(b.publishedAt, a.publishedAt);
+			return (c != 0) ? c : a.name.compareTo(b.name);
+		}
+	};
+	
+	private static final String FAMILY = "family:", PUBLISHER = "publisher:", OS_TYPE = "os:", REGION = "region:";
+	
+	private final TreeMap<String, Entry> byName;
+	private final Map<String, NavigableSet<Entry>> buckets;
+	
+	private OSImageIndex(TreeMap<String, Entry> byName, Map<String, NavigableSet<Entry>> buckets) {
+		this.byName = byName;
+		this.buckets = buckets;
+	}
+	
+	
+	/**
+	 * Returns an index reflecting the listing, touching only the buckets of the images that were added, changed or removed 
+	 * since this index was built
+	 * @param listing The current images
+	 * @return The updated index, or this index if nothing changed
+	 */
+	OSImageIndex update(List<VirtualMachineOSImage> listing) {
+		final List<Entry> added = new ArrayList<>();
+		final List<Entry> removed = new ArrayList<>();
+		final TreeMap<String, Entry> byName = new TreeMap<>();
+		for(VirtualMachineOSImage image : listing) {
+			final Entry existing = this.byName.get(image.getName());
+			if(existing != null && isSame(existing.image, image)) {
+				byName.put(existing.name, existing);
+			} else {
+				final Entry entry = new Entry(image);
+				byName.put(entry.name, entry);
+				added.add(entry);
+				if(existing != null) {
+					removed.add(existing);
+				}
+			}
+		}
+		
+		for(Entry existing : this.byName.values()) {
+			if(!byName.containsKey(existing.name)) {
+				removed.add(existing);
+			}
+		}
+		
+		if(added.isEmpty() && removed.isEmpty()) {
+			return this;
+		}
+		
+		// Copy only the buckets being modified, sharing the others with this index
+		final Map<String, NavigableSet<Entry>> buckets = new HashMap<>(this.buckets);
+		final Set<String> copied = new HashSet<>();
+		for(Entry entry : removed) {
+			for(String key : keysOf(entry.image)) {
+				bucket(buckets, copied, key).remove(entry);
+			}
+		}
+		for(Entry entry : added) {
+			for(String key : keysOf(entry.image)) {
+				bucket(buckets, copied, key).add(entry);
+			}
+		}
+		for(String key : copied) {
+			if(buckets.get(key).isEmpty()) {
+				buckets.remove(key);
+			}
+		}
+		
+		return new OSImageIndex(byName, buckets);
+	}
+	
+	
+	/**
+	 * @param wrap Wraps each image
+	 * @return New wrappers of the images, keyed and sorted by name
+	 */
+	Map<String, OSImage> asMap(Function<VirtualMachineOSImage, OSImage> wrap) {
+		final TreeMap<String, OSImage> wrappers = new TreeMap<>();
+		for(Entry entry : this.byName.values()) {
+			wrappers.put(entry.name, wrap.apply(entry.image));
+		}
+		return Collections.unmodifiableMap(wrappers);
+	}
+	
+	
+	/**
+	 * @param name The name of the image
+	 * @return The image as listed, or null if it is not in the index
+	 */
+	VirtualMachineOSImage get(String name) {
+		final Entry entry = this.byName.get(name);
+		return (entry != null) ? entry.image : null;
+	}
+	
+	
+	/**
+	 * @param family The image family
+	 * @param region The region the image must be available in, or null for any
+	 * @param wrap Wraps the image
+	 * @return A new wrapper of the most recently published matching image, or null if there is none
+	 */
+	OSImage latest(String family, String region, Function<VirtualMachineOSImage, OSImage> wrap) {
+		final NavigableSet<Entry> bucket = this.buckets.get((region != null) 
+			? key(FAMILY, family) + "|" + key(REGION, region) 
+			: key(FAMILY, family));
+		return (bucket != null && !bucket.isEmpty()) ? wrap.apply(bucket.first().image) : null;
+	}
+	
+	
+	/**
+	 * Returns the images matching all the specified criteria, newest first, scanning only the smallest of their buckets
+	 * @param family The image family, or null for any
+	 * @param publisher The publisher, or null for any
+	 * @param operatingSystemType The operating system type, or null for any
+	 * @param region The region the image must be available in, or null for any
+	 * @param wrap Wraps each matching image
+	 * @return New wrappers of the matching images
+	 */
+	List<OSImage> find(String family, String publisher, String operatingSystemType, String region, Function<VirtualMachineOSImage, OSImage> wrap) {
+		final List<NavigableSet<Entry>> criteria = new ArrayList<>();
+		final String[] keys = {
+			(family != null) ? key(FAMILY, family) : null,
+			(publisher != null) ? key(PUBLISHER, publisher) : null,
+			(operatingSystemType != null) ? key(OS_TYPE, operatingSystemType) : null,
+			(region != null) ? key(REGION, region) : null
+		};
+		
+		for(String key : keys) {
+			if(key != null) {
+				final NavigableSet<Entry> bucket = this.buckets.get(key);
+				if(bucket == null) {
+					return Collections.emptyList();
+				}
+				criteria.add(bucket);
+			}
+		}
+		
+		final List<OSImage> matches = new ArrayList<>();
+		if(criteria.isEmpty()) {
+			final List<Entry> all = new ArrayList<>(this.byName.values());
+			Collections.sort(all, NEWEST_FIRST);
+			for(Entry entry : all) {
+				matches.add(wrap.apply(entry.image));
+			}
+			return Collections.unmodifiableList(matches);
+		}
+		
+		NavigableSet<Entry> smallest = criteria.get(0);
+		for(NavigableSet<Entry> bucket : criteria) {
+			if(bucket.size() < smallest.size()) {
+				smallest = bucket;
+			}
+		}
+		
+		candidates: for(Entry entry : smallest) {
+			for(NavigableSet<Entry> bucket : criteria) {
+				if(bucket != smallest && !bucket.contains(entry)) {
+					continue candidates;
+				}
+			}
+			matches.add(wrap.apply(entry.image));
+		}
+		
+		return Collections.unmodifiableList(matches);
+	}
+	
+	
+	/*******************************************************
+	 * Helpers
+	 *******************************************************/
+	
+	private static NavigableSet<Entry> bucket(Map<String, NavigableSet<Entry>> buckets, Set<String> copied, String key) {
+		NavigableSet<Entry> bucket = buckets.get(key);
+		if(bucket == null) {
+			bucket = new TreeSet<>(NEWEST_FIRST);
+			buckets.put(key, bucket);
+			copied.add(key);
+		} else if(copied.add(key)) {
+			bucket = new TreeSet<>(bucket);
+			buckets.put(key, bucket);
+		}
+		return bucket;
+	}
+	
+	
+	// Returns the keys of all the buckets the image belongs to
+	private static List<String> keysOf(VirtualMachineOSImage image) {
+		final List<String> keys = new ArrayList<>();
+		final List<String> regions = new ArrayList<>();
+		if(image.getLocation() != null) {
+			for(String region : image.getLocation().split(";")) {
+				if(!region.trim().isEmpty()) {
+					regions.add(key(REGION, region.trim()));
+				}
+			}
+		}
+		
+		keys.addAll(regions);
+		if(image.getImageFamily() != null) {
+			final String family = key(FAMILY, image.getImageFamily());
+			keys.add(family);
+			for(String region : regions) {
+				keys.add(family + "|" + region);
+			}
+		}
+		if(image.getPublisherName() != null) {
+			keys.add(key(PUBLISHER, image.getPublisherName()));
+		}
+		if(image.getOperatingSystemType() != null) {
+			keys.add(key(OS_TYPE, image.getOperatingSystemType()));
+		}
+		return keys;
+	}
+	
+	
+	private static String key(String kind, String value) {
+		return kind + value.trim().toLowerCase();
+	}
+	
+	
+	// Determines whether a listed image is unchanged from the indexed one, as far as the index and the wrapper getters are concerned
+	private static boolean isSame(VirtualMachineOSImage a, VirtualMachineOSImage b) {
+		return Objects.equals(a.getImageFamily(), b.getImageFamily())
+			&& Objects.equals(a.getPublisherName(), b.getPublisherName())
+			&& Objects.equals(a.getOperatingSystemType(), b.getOperatingSystemType())
+			&& Objects.equals(a.getLocation(), b.getLocation())
+			&& Objects.equals(a.getPublishedDate(), b.getPublishedDate())
+			&& Objects.equals(a.getLabel(), b.getLabel())
+			&& Objects.equals(a.getDescription(), b.getDescription())
+			&& Objects.equals(a.getMediaLinkUri(), b.getMediaLinkUri())
+			&& Objects.equals(a.getRecommendedVMSize(), b.getRecommendedVMSize())
+			&& a.getLogicalSizeInGB() == b.getLogicalSizeInGB();
+	}
+}
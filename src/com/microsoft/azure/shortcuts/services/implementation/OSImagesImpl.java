@@ -23,14 +23,16 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableRefreshableWrapperImpl;
+import com.microsoft.azure.shortcuts.common.implementation.MetadataCatalog;
+import com.microsoft.azure.shortcuts.common.implementation.Snapshot;
 import com.microsoft.azure.shortcuts.services.OSImage;
 import com.microsoft.azure.shortcuts.services.OSImages;
 import com.microsoft.windowsazure.management.compute.models.VirtualMachineOSImageGetResponse;
@@ -41,8 +43,84 @@ public class OSImagesImpl
 	extends EntitiesImpl<Azure>
 	implements OSImages {
 	
+	private final Snapshot<OSImageIndex> images;
+	private volatile OSImageIndex index = OSImageIndex.EMPTY;
+	
+	// Stores each image as the properties exposed by OSImage
+	private static final MetadataCatalog.Codec<List<VirtualMachineOSImage>> OS_IMAGES_CODEC = new MetadataCatalog.Codec<List<VirtualMachineOSImage>>() {
+		@Override
+		public List<String[]> encode(List<VirtualMachineOSImage> images) {
+			List<String[]> rows = new ArrayList<>();
+			for(VirtualMachineOSImage image : images) {
+				rows.add(new String[] {
+					image.getName(),
+					image.getCategory(),
+					image.getDescription(),
+					image.getEula(),
+					image.getIconUri(),
+					image.getImageFamily(),
+					image.getIOType(),
+					image.getLabel(),
+					image.getLanguage(),
+					image.getLocation(),
+					String.valueOf(image.getLogicalSizeInGB()),
+					(image.getMediaLinkUri() != null) ? image.getMediaLinkUri().toString() : null,
+					image.getOperatingSystemType(),
+					(image.getPrivacyUri() != null) ? image.getPrivacyUri().toString() : null,
+					(image.getPublishedDate() != null) ? String.valueOf(image.getPublishedDate().getTimeInMillis()) : null,
+					image.getPublisherName(),
+					image.getRecommendedVMSize(),
+					image.getSmallIconUri(),
+					String.valueOf(image.isPremium()),
+					String.valueOf(image.isShowInGui())
+				});
+			}
+			return rows;
+		}
+		
+		@Override
+		public List<VirtualMachineOSImage> decode(List<String[]> rows) {
+			List<VirtualMachineOSImage> images = new ArrayList<>();
+			for(String[] row : rows) {
+				VirtualMachineOSImage image = new VirtualMachineOSImage();
+				image.setName(row[0]);
+				image.setCategory(row[1]);
+				image.setDescription(row[2]);
+				image.setEula(row[3]);
+				image.setIconUri(row[4]);
+				image.setImageFamily(row[5]);
+				image.setIOType(row[6]);
+				image.setLabel(row[7]);
+				image.setLanguage(row[8]);
+				image.setLocation(row[9]);
+				image.setLogicalSizeInGB(Double.parseDouble(row[10]));
+				image.setMediaLinkUri((row[11] != null) ? URI.create(row[11]) : null);
+				image.setOperatingSystemType(row[12]);
+				image.setPrivacyUri((row[13] != null) ? URI.create(row[13]) : null);
+				if(row[14] != null) {
+					Calendar publishedDate = Calendar.getInstance();
+					publishedDate.setTimeInMillis(Long.parseLong(row[14]));
+					image.setPublishedDate(publishedDate);
+				}
+				image.setPublisherName(row[15]);
+				image.setRecommendedVMSize(row[16]);
+				image.setSmallIconUri(row[17]);
+				image.setIsPremium(Boolean.parseBoolean(row[18]));
+				image.setShowInGui(Boolean.parseBoolean(row[19]));
+				images.add(image);
+			}
+			return images;
+		}
+	};
+	
 	OSImagesImpl(Azure azure) {
 		super(azure);
+		
+		// Indexed once per listing, updating only what changed since the previous listing
+		this.images = azure.snapshot(() -> {
+			this.index = this.index.update(this.subscription.metadata("classic/osImages", () -> getOSImages(), OS_IMAGES_CODEC));
+			return this.index;
+		});
 	}
 
 
@@ -54,24 +132,32 @@ public class OSImagesImpl
 	
 	@Override
 	public Map<String, OSImage> asMap() throws Exception {
-		ArrayList<VirtualMachineOSImage> osImages = getOSImages();
-		Collections.sort(osImages, new Comparator<VirtualMachineOSImage>() {
-			@Override
-			public int compare(VirtualMachineOSImage o1, VirtualMachineOSImage o2) {
-				return o1.getName().compareToIgnoreCase(o2.getName());
-			}
-		});
-		
-		TreeMap<String, OSImage> wrappers = new TreeMap<>();
-		for(VirtualMachineOSImage nativeItem : osImages) {
-			OSImageImpl wrapper = new OSImageImpl(nativeItem);
-			wrappers.put(nativeItem.getName(), wrapper);
-		}
-		
-		return Collections.unmodifiableMap(wrappers);
+		return this.images.get().asMap(nativeItem -> new OSImageImpl(nativeItem));
 	}	
 
 	
+	@Override
+	public OSImage latest(String family, String region) throws Exception {
+		OSImage image = this.images.get().latest(family, region, nativeItem -> new OSImageImpl(nativeItem));
+		if(image == null) {
+			throw new NoSuchElementException(String.format("No OS image found in family '%s'.", family));
+		}
+		return image;
+	}
+	
+	
+	@Override
+	public OSImage latest(String family) throws Exception {
+		return this.latest(family, null);
+	}
+	
+	
+	@Override
+	public List<OSImage> find(String family, String publisher, String operatingSystemType, String region) throws Exception {
+		return this.images.get().find(family, publisher, operatingSystemType, region, nativeItem -> new OSImageImpl(nativeItem));
+	}
+
+	
 	/*********************************************************
 	 * Helpers
 	 *********************************************************/
@@ -92,11 +178,16 @@ public class OSImagesImpl
 	// Encapsulated information about an image
 	private class OSImageImpl 
 		extends IndexableRefreshableWrapperImpl<OSImage, VirtualMachineOSImage> 
-		implements OSImage {
+		implements OSImage, ExecutorProvider {
 		
 		private OSImageImpl(VirtualMachineOSImage osImage) {
 			super(osImage.getName(), osImage);
 		}
+		
+		@Override
+		public Executor executor() {
+			return OSImagesImpl.this.executor();
+		}
 
 		
 		/***********************************************************
@@ -205,26 +296,37 @@ public class OSImagesImpl
 
 		@Override
 		public OSImage refresh() throws Exception {
+			// Served from the listing shared by all the images when it has this image
+			VirtualMachineOSImage listed = images.get().get(this.inner().getName());
+			if(listed != null) {
+				this.setInner(listed);
+				return this;
+			}
+			
+			// Otherwise get it, into a new image since the current one may be shared with the listing
+			VirtualMachineOSImage image = new VirtualMachineOSImage();
+			image.setName(this.inner().getName());
 			VirtualMachineOSImageGetResponse response = subscription.computeManagementClient().getVirtualMachineOSImagesOperations().get(this.inner().getName());
-			this.inner().setCategory(response.getCategory());
-			this.inner().setDescription(response.getDescription());
-			this.inner().setEula(response.getEula());
-			this.inner().setIconUri(response.getIconUri());
-			this.inner().setImageFamily(response.getImageFamily());
-			this.inner().setIOType(response.getIOType());
-			this.inner().setLabel(response.getLabel());
-			this.inner().setLanguage(response.getLanguage());
-			this.inner().setLocation(response.getLocation());
-			this.inner().setLogicalSizeInGB(response.getLogicalSizeInGB());
-			this.inner().setMediaLinkUri(response.getMediaLinkUri());
-			this.inner().setOperatingSystemType(response.getOperatingSystemType());
-			this.inner().setPrivacyUri(response.getPrivacyUri());
-			this.inner().setPublishedDate(response.getPublishedDate());
-			this.inner().setPublisherName(response.getPublisherName());
-			this.inner().setRecommendedVMSize(response.getRecommendedVMSize());
-			this.inner().setSmallIconUri(response.getSmallIconUri());
-			this.inner().setIsPremium(response.isPremium());
-			this.inner().setShowInGui(response.isShowInGui());
+			image.setCategory(response.getCategory());
+			image.setDescription(response.getDescription());
+			image.setEula(response.getEula());
+			image.setIconUri(response.getIconUri());
+			image.setImageFamily(response.getImageFamily());
+			image.setIOType(response.getIOType());
+			image.setLabel(response.getLabel());
+			image.setLanguage(response.getLanguage());
+			image.setLocation(response.getLocation());
+			image.setLogicalSizeInGB(response.getLogicalSizeInGB());
+			image.setMediaLinkUri(response.getMediaLinkUri());
+			image.setOperatingSystemType(response.getOperatingSystemType());
+			image.setPrivacyUri(response.getPrivacyUri());
+			image.setPublishedDate(response.getPublishedDate());
+			image.setPublisherName(response.getPublisherName());
+			image.setRecommendedVMSize(response.getRecommendedVMSize());
+			image.setSmallIconUri(response.getSmallIconUri());
+			image.setIsPremium(response.isPremium());
+			image.setShowInGui(response.isShowInGui());
+			this.setInner(image);
 			return this;
 		}
 	}
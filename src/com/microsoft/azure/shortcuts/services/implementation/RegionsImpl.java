@@ -22,23 +22,82 @@ package com.microsoft.azure.shortcuts.services.implementation;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableRefreshableWrapperImpl;
+import com.microsoft.azure.shortcuts.common.implementation.MetadataCatalog;
+import com.microsoft.azure.shortcuts.common.implementation.Snapshot;
 import com.microsoft.azure.shortcuts.services.Region;
 import com.microsoft.azure.shortcuts.services.Regions;
+import com.microsoft.windowsazure.management.models.ComputeCapabilities;
 import com.microsoft.windowsazure.management.models.LocationsListResponse.Location;
+import com.microsoft.windowsazure.management.models.StorageCapabilities;
 
 // Class encapsulating the API related to locations
 public class RegionsImpl 
 	extends EntitiesImpl<Azure>
 	implements Regions {
 	
+	private final Snapshot<Map<String, Location>> locations;
+	
+	// Stores each location as its name, display name, services, VM role sizes, web/worker role sizes and storage account types
+	private static final MetadataCatalog.Codec<List<Location>> LOCATIONS_CODEC = new MetadataCatalog.Codec<List<Location>>() {
+		@Override
+		public List<String[]> encode(List<Location> locations) {
+			List<String[]> rows = new ArrayList<>();
+			for(Location location : locations) {
+				ComputeCapabilities compute = location.getComputeCapabilities();
+				StorageCapabilities storage = location.getStorageCapabilities();
+				rows.add(new String[] {
+					location.getName(),
+					location.getDisplayName(),
+					MetadataCatalog.joinList(location.getAvailableServices()),
+					(compute != null) ? MetadataCatalog.joinList(compute.getVirtualMachinesRoleSizes()) : null,
+					(compute != null) ? MetadataCatalog.joinList(compute.getWebWorkerRoleSizes()) : null,
+					(storage != null) ? MetadataCatalog.joinList(storage.getStorageAccountTypes()) : null
+				});
+			}
+			return rows;
+		}
+		
+		@Override
+		public List<Location> decode(List<String[]> rows) {
+			List<Location> locations = new ArrayList<>();
+			for(String[] row : rows) {
+				Location location = new Location();
+				location.setName(row[0]);
+				location.setDisplayName(row[1]);
+				location.setAvailableServices(MetadataCatalog.splitList(row[2]));
+				ComputeCapabilities compute = new ComputeCapabilities();
+				compute.setVirtualMachinesRoleSizes(MetadataCatalog.splitList(row[3]));
+				compute.setWebWorkerRoleSizes(MetadataCatalog.splitList(row[4]));
+				location.setComputeCapabilities(compute);
+				StorageCapabilities storage = new StorageCapabilities();
+				storage.setStorageAccountTypes(MetadataCatalog.splitList(row[5]));
+				location.setStorageCapabilities(storage);
+				locations.add(location);
+			}
+			return locations;
+		}
+	};
+	
 	RegionsImpl(Azure azure) {
 		super(azure);
+		this.locations = azure.snapshot(() -> {
+			Map<String, Location> byName = new LinkedHashMap<>();
+			for(Location location : this.subscription.metadata("classic/locations", 
+					() -> this.subscription.managementClient().getLocationsOperations().list().getLocations(), 
+					LOCATIONS_CODEC)) {
+				byName.put(location.getName(), location);
+			}
+			return Collections.unmodifiableMap(byName);
+		});
 	}
 	
 	@Override
@@ -50,7 +109,7 @@ public class RegionsImpl
 	public Map<String, Region> list(String serviceType) {
 		HashMap<String, Region> wrappers = new HashMap<>();
 		try {
-			for(Location nativeItem : getAzureLocations()) {
+			for(Location nativeItem : this.locations.get().values()) {
 				if(serviceType == null || nativeItem.getAvailableServices().contains(serviceType)) {
 					wrappers.put(nativeItem.getName(), new RegionImpl(nativeItem));
 				}
@@ -73,10 +132,6 @@ public class RegionsImpl
 	 * Helpers
 	 ***************************************************/
 	
-	private List<Location> getAzureLocations() throws Exception {
-		return subscription.managementClient().getLocationsOperations().list().getLocations();
-	}
-	
 	private RegionImpl createRegion(String name) {
 		Location azureLocation = new Location();
 		azureLocation.setName(name);
@@ -90,11 +145,16 @@ public class RegionsImpl
 	
 	private class RegionImpl
 		extends IndexableRefreshableWrapperImpl<Region, Location>
-		implements Region {
+		implements Region, ExecutorProvider {
 		
 		private RegionImpl(Location azureLocation) {
 			super(azureLocation.getName(), azureLocation);
 		}
+		
+		@Override
+		public Executor executor() {
+			return RegionsImpl.this.executor();
+		}
 
 		
 		/**************************************************
@@ -133,12 +193,10 @@ public class RegionsImpl
 		
 		@Override
 		public Region refresh() throws Exception {
-			ArrayList<Location> azureLocations = subscription.managementClient().getLocationsOperations().list().getLocations();
-			for(Location azureLocation : azureLocations) {
-				if(azureLocation.getName().equals(this.inner().getName())) {
-					this.setInner(azureLocation);
-					return this;
-				}
+			Location azureLocation = locations.get().get(this.inner().getName());
+			if(azureLocation != null) {
+				this.setInner(azureLocation);
+				return this;
 			}
 			throw new NoSuchElementException(String.format("Region '%s' not found.", this.inner().getName()));
 		}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
+import com.microsoft.azure.shortcuts.common.implementation.MetadataCatalog;
 import com.microsoft.azure.shortcuts.services.Sizes;
 import com.microsoft.windowsazure.management.models.RoleSizeListResponse.RoleSize;
 
@@ -39,13 +40,14 @@ public class SizesImpl
 	@Override
 	public List<String> names(boolean supportingVM, boolean supportingCloudServices) {
 		try {
-			ArrayList<RoleSize> items = subscription.managementClient().getRoleSizesOperations().list().getRoleSizes();
-			ArrayList<String> names = new ArrayList<>();
-			for(RoleSize item : items) {
-				names.add(item.getName());
-			}
-
-			return names;
+			return new ArrayList<>(subscription.metadata("classic/roleSizes", () -> {
+				ArrayList<RoleSize> items = subscription.managementClient().getRoleSizesOperations().list().getRoleSizes();
+				ArrayList<String> names = new ArrayList<>();
+				for(RoleSize item : items) {
+					names.add(item.getName());
+				}
+				return names;
+			}, MetadataCatalog.STRINGS));
 		} catch (Exception e) {
 			// Not very actionable, so just return an empty array
 			return new ArrayList<>();
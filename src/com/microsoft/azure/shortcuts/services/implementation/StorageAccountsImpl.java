@@ -26,8 +26,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableRefreshableWrapperImpl;
 import com.microsoft.azure.shortcuts.services.Region;
 import com.microsoft.azure.shortcuts.services.StorageAccount;
@@ -116,11 +118,17 @@ public class StorageAccountsImpl
 			StorageAccount.DefinitionBlank, 
 			StorageAccount.DefinitionProvisionable,
 			StorageAccount.Update,
-			StorageAccount {
+			StorageAccount,
+			ExecutorProvider {
 		
 		public StorageAccountImpl(com.microsoft.windowsazure.management.storage.models.StorageAccount azureStorageAccount) {
 			super(azureStorageAccount.getName(), azureStorageAccount);
 		}
+		
+		@Override
+		public Executor executor() {
+			return StorageAccountsImpl.this.executor();
+		}
 
 		/***********************************************************
 		 * Getters
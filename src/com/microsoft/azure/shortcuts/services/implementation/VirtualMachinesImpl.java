@@ -21,17 +21,35 @@ package com.microsoft.azure.shortcuts.services.implementation;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang3.NotImplementedException;
 
+import com.microsoft.azure.shortcuts.common.BatchResult;
+import com.microsoft.azure.shortcuts.common.implementation.Async;
+import com.microsoft.azure.shortcuts.common.implementation.BatchResultImpl;
+import com.microsoft.azure.shortcuts.common.implementation.BoundedSubmitter;
+import com.microsoft.azure.shortcuts.common.implementation.DeepCopy;
 import com.microsoft.azure.shortcuts.common.implementation.EntitiesImpl;
+import com.microsoft.azure.shortcuts.common.implementation.ExecutorProvider;
 import com.microsoft.azure.shortcuts.common.implementation.IndexableRefreshableImpl;
 import com.microsoft.azure.shortcuts.services.CloudService;
 import com.microsoft.azure.shortcuts.services.Network;
@@ -61,6 +79,9 @@ public class VirtualMachinesImpl
 	extends EntitiesImpl<Azure>
 	implements VirtualMachines {	
 	
+	private static final int DEFAULT_PARALLELISM = 10;
+	private static final long DEFAULT_TIMEOUT_SECONDS = 60;
+	
 	VirtualMachinesImpl(Azure azure) {
 		super(azure);
 	}
@@ -70,7 +91,7 @@ public class VirtualMachinesImpl
 	// Format: [{serviceName}.[{deploymentName}.]]roleName}
 	// If serviceName is blank, assume same as roleName
 	// If deploymentName is blank, assume PRODUCTION
-	private static class VirtualMachineId {
+	static class VirtualMachineId {
 		private static String[] getParts(String id) {
 			if(id == null) {
 				return null;
@@ -100,7 +121,7 @@ public class VirtualMachinesImpl
 			if(parts == null) {
 				return null;
 			} else if(parts.length == 3) {
-				return parts[2];
+				return parts[1];
 			} else {
 				return null;
 			}
@@ -150,25 +171,68 @@ public class VirtualMachinesImpl
 	
 	@Override
 	public List<String> names() throws Exception {
-		Set<String> serviceNames = subscription.cloudServices().asMap().keySet();
-		ArrayList<String> vms = new ArrayList<String>();
+		return names(DEFAULT_PARALLELISM, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS, null);
+	}
+	
+	
+	@Override
+	public List<String> names(int parallelism, long timeout, TimeUnit unit, Map<String, Exception> failures) throws Exception {
+		final Set<String> serviceNames = subscription.cloudServices().asMap().keySet();
+		final ArrayList<String> vms = new ArrayList<String>();
+		if(serviceNames.isEmpty()) {
+			return vms;
+		}
 		
-		// Find all virtual machine roles within cloud services 
-		for(String serviceName : serviceNames) {
+		// Look up the production deployments of the cloud services concurrently on the executor of the client, 
+		// all within the same deadline
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		final BoundedSubmitter submitter = new BoundedSubmitter(subscription.executor(), parallelism);
+		final LinkedHashMap<String, Future<DeploymentGetResponse>> deployments = new LinkedHashMap<>();
+		for(final String serviceName : serviceNames) {
 			try {
-				DeploymentGetResponse deployment = subscription.computeManagementClient().getDeploymentsOperations().getBySlot(serviceName, DeploymentSlot.Production);
-				for(Role role : deployment.getRoles()) {
-					if(role.getRoleType().equalsIgnoreCase(VirtualMachineRoleType.PersistentVMRole.toString())) {
-						vms.add(serviceName + "." + role.getRoleName());
+				deployments.put(serviceName, submitter.submit(new Callable<DeploymentGetResponse>() {
+					@Override
+					public DeploymentGetResponse call() throws Exception {
+						return subscription.computeManagementClient().getDeploymentsOperations().getBySlot(serviceName, DeploymentSlot.Production);
 					}
-				}
-			} catch (Exception e) {
+				}, deadline));
+			} catch(TimeoutException e) {
+				recordFailure(failures, serviceName, e);
+			}
+		}
+		
+		// Find all virtual machine roles within cloud services, in the order the services were listed
+		for(Entry<String, Future<DeploymentGetResponse>> entry : deployments.entrySet()) {
+			final String serviceName = entry.getKey();
+			final DeploymentGetResponse deployment;
+			try {
+				deployment = entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch(ExecutionException e) {
+				recordFailure(failures, serviceName, (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e);
 				continue;
+			} catch(TimeoutException e) {
+				entry.getValue().cancel(true);
+				recordFailure(failures, serviceName, e);
+				continue;
+			}
+			
+			for(Role role : deployment.getRoles()) {
+				if(role.getRoleType().equalsIgnoreCase(VirtualMachineRoleType.PersistentVMRole.toString())) {
+					vms.add(serviceName + "." + role.getRoleName());
+				}
 			}
 		}
 		
 		return vms;
 	}
+	
+	
+	// Records the error for a cloud service, if the caller asked for failures
+	private static void recordFailure(Map<String, Exception> failures, String serviceName, Exception e) {
+		if(failures != null) {
+			failures.put(serviceName, e);
+		}
+	}
 
 	
 	@Override
@@ -202,6 +266,24 @@ public class VirtualMachinesImpl
 		}
 		return null;
 	}
+	
+	
+	// Copies the deployment fields a VM keeps, leaving out the roles, so that the VMs of a deployment neither share one object nor each copy all the roles
+	private static DeploymentGetResponse copyDeploymentFields(DeploymentGetResponse deployment) {
+		DeploymentGetResponse copy = new DeploymentGetResponse();
+		copy.setName(deployment.getName());
+		copy.setLabel(deployment.getLabel());
+		copy.setStatus(deployment.getStatus());
+		copy.setDeploymentSlot(deployment.getDeploymentSlot());
+		copy.setVirtualNetworkName(deployment.getVirtualNetworkName());
+		copy.setReservedIPName(deployment.getReservedIPName());
+		copy.setUri(deployment.getUri());
+		copy.setLocked(deployment.isLocked());
+		copy.setCreatedTime(DeepCopy.of(deployment.getCreatedTime()));
+		copy.setLastModifiedTime(DeepCopy.of(deployment.getLastModifiedTime()));
+		copy.setExtendedProperties(DeepCopy.of(deployment.getExtendedProperties()));
+		return copy;
+	}
 
 	
 	// Returns the data for an existing virtual machine, where the VM name (if any) is qualified with the service name and deployment name (if any): 
@@ -214,6 +296,138 @@ public class VirtualMachinesImpl
 	}
 
 
+	@Override
+	public Map<String, VirtualMachine> getAll(Collection<String> ids, Map<String, Exception> failures) throws Exception {
+		final LinkedHashMap<String, List<Entry<String, VirtualMachineImpl>>> groups = new LinkedHashMap<>();
+		for(String id : ids) {
+			group(groups, id, new VirtualMachineImpl(id));
+		}
+		
+		final BatchResultImpl result = new BatchResultImpl();
+		refreshGroups(groups, DEFAULT_PARALLELISM, result);
+		
+		final LinkedHashMap<String, VirtualMachine> vms = new LinkedHashMap<>();
+		for(List<Entry<String, VirtualMachineImpl>> group : groups.values()) {
+			for(Entry<String, VirtualMachineImpl> vm : group) {
+				if(!result.failed().containsKey(vm.getKey())) {
+					vms.put(vm.getKey(), vm.getValue());
+				}
+			}
+		}
+		
+		if(failures != null) {
+			failures.putAll(result.failed());
+		}
+		
+		return vms;
+	}
+	
+	
+	@Override
+	public BatchResult refreshAll(Collection<VirtualMachine> vms) throws Exception {
+		return refreshAll(vms, DEFAULT_PARALLELISM);
+	}
+	
+	
+	@Override
+	public BatchResult refreshAll(Collection<VirtualMachine> vms, int parallelism) throws Exception {
+		final LinkedHashMap<String, List<Entry<String, VirtualMachineImpl>>> groups = new LinkedHashMap<>();
+		final ArrayList<VirtualMachine> others = new ArrayList<>();
+		for(VirtualMachine vm : vms) {
+			if(vm instanceof VirtualMachineImpl) {
+				group(groups, vm.id(), (VirtualMachineImpl) vm);
+			} else {
+				others.add(vm);
+			}
+		}
+		
+		final BatchResultImpl result = new BatchResultImpl();
+		refreshGroups(groups, parallelism, result);
+		
+		// VMs not created by this collection can only be refreshed one at a time
+		for(VirtualMachine vm : others) {
+			try {
+				vm.refresh();
+				result.recordSuccess(vm.id());
+			} catch(Exception e) {
+				result.recordFailure(vm.id(), e);
+			}
+		}
+		
+		return result;
+	}
+	
+	
+	// Adds a VM to the group of VMs sharing its cloud service and deployment, keeping the id it had when grouped
+	private static void group(Map<String, List<Entry<String, VirtualMachineImpl>>> groups, String id, VirtualMachineImpl vm) {
+		final String deploymentName = VirtualMachineId.deploymentFromId(id);
+		final String key = (VirtualMachineId.serviceFromId(id) + "." + (deploymentName != null ? deploymentName : "")).toLowerCase();
+		List<Entry<String, VirtualMachineImpl>> group = groups.get(key);
+		if(group == null) {
+			group = new ArrayList<>();
+			groups.put(key, group);
+		}
+		group.add(new SimpleImmutableEntry<>(id, vm));
+	}
+	
+	
+	// Reads each group's deployment and each distinct cloud service once, concurrently, then rehydrates every VM of the group from them
+	private void refreshGroups(Map<String, List<Entry<String, VirtualMachineImpl>>> groups, int parallelism, BatchResultImpl result) throws Exception {
+		if(groups.isEmpty()) {
+			return;
+		}
+		
+		// Run the reads on the executor of the client, with at most the specified number of them in flight
+		final BoundedSubmitter submitter = new BoundedSubmitter(subscription.executor(), parallelism);
+		final HashMap<String, Future<DeploymentGetResponse>> deployments = new HashMap<>();
+		final HashMap<String, Future<CloudService>> services = new HashMap<>();
+		for(Entry<String, List<Entry<String, VirtualMachineImpl>>> group : groups.entrySet()) {
+			final String id = group.getValue().get(0).getKey();
+			final String serviceName = VirtualMachineId.serviceFromId(id).toLowerCase();
+			deployments.put(group.getKey(), submitter.submit(new Callable<DeploymentGetResponse>() {
+				@Override
+				public DeploymentGetResponse call() throws Exception {
+					return getDeployment(id);
+				}
+			}));
+			
+			if(!services.containsKey(serviceName)) {
+				services.put(serviceName, submitter.submit(new Callable<CloudService>() {
+					@Override
+					public CloudService call() throws Exception {
+						return subscription.cloudServices().get(serviceName);
+					}
+				}));
+			}
+		}
+		
+		for(Entry<String, List<Entry<String, VirtualMachineImpl>>> group : groups.entrySet()) {
+			final List<Entry<String, VirtualMachineImpl>> vms = group.getValue();
+			final DeploymentGetResponse deployment;
+			final CloudService service;
+			try {
+				deployment = deployments.get(group.getKey()).get();
+				service = services.get(VirtualMachineId.serviceFromId(vms.get(0).getKey()).toLowerCase()).get();
+			} catch(ExecutionException e) {
+				final Exception cause = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+				for(Entry<String, VirtualMachineImpl> vm : vms) {
+					result.recordFailure(vm.getKey(), cause);
+				}
+				continue;
+			}
+			
+			for(Entry<String, VirtualMachineImpl> vm : vms) {
+				try {
+					vm.getValue().rehydrate(deployment, service);
+					result.recordSuccess(vm.getKey());
+				} catch(Exception e) {
+					result.recordFailure(vm.getKey(), e);
+				}
+			}
+		}
+	}
+	
+
 	@Override
 	public void delete(String name) throws Exception {
 		// TODO
@@ -240,7 +454,8 @@ public class VirtualMachinesImpl
 			VirtualMachine.DefinitionWithAdminPassword, 
 			VirtualMachine.DefinitionWithSize,
 			VirtualMachine,
-			VirtualMachine.Update {
+			VirtualMachine.Update,
+			ExecutorProvider {
 
 		private DeploymentGetResponse azureDeployment = new DeploymentGetResponse();
 		private Role azureRole = new Role();
@@ -272,6 +487,11 @@ public class VirtualMachinesImpl
 			this.withHostName(defaultRoleName);
 		}
 		
+		@Override
+		public Executor executor() {
+			return VirtualMachinesImpl.this.executor();
+		}
+		
 		
 		/***********************************************************
 		 * Getters
@@ -633,38 +853,87 @@ public class VirtualMachinesImpl
 
 		@Override
 		public VirtualMachineImpl create() throws Exception {
+			// Start the prerequisites that do not depend on each other concurrently, so that provisioning
+			// takes about as long as the longest of them followed by the VM creation itself
+			final Executor executor = this.executor();
+			
 			// Get affinity group and region from existing resources
-			if(this.cloudService() != null && this.isExistingCloudService) {
-				// Get from existing cloud service
-				final CloudService cloudService = subscription.cloudServices().get(this.cloudService());
-				this.affinityGroup = cloudService.affinityGroup();
-				this.region = cloudService.region();
-			} else if(this.azureDeployment.getVirtualNetworkName() != null) {
-				// Get from network
-				final Network network = subscription.networks().get(this.azureDeployment.getVirtualNetworkName());
-				this.affinityGroup = network.affinityGroup();
-				this.region = network.region();
-				
-				// Enable first subnet from network by default, if none specified
-				if(this.subnet == null) {
-					this.subnet = (String)network.subnets().keySet().toArray()[0];
+			final CompletableFuture<Void> placement = Async.supply(() -> {
+				if(this.cloudService() != null && this.isExistingCloudService) {
+					// Get from existing cloud service
+					final CloudService cloudService = subscription.cloudServices().get(this.cloudService());
+					this.affinityGroup = cloudService.affinityGroup();
+					this.region = cloudService.region();
+				} else if(this.azureDeployment.getVirtualNetworkName() != null) {
+					// Get from network
+					final Network network = subscription.networks().get(this.azureDeployment.getVirtualNetworkName());
+					this.affinityGroup = network.affinityGroup();
+					this.region = network.region();
+					
+					// Enable first subnet from network by default, if none specified
+					if(this.subnet == null) {
+						this.subnet = (String)network.subnets().keySet().toArray()[0];
+					}
 				}
-			}
+				return null;
+			}, executor);
 			
-			// Create storage account if not specified
-			if(this.storageAccountName == null) {
-				final String storeName = "store" + System.currentTimeMillis();
-				subscription.storageAccounts().define(storeName)
-					.withRegion(this.region)
-					.create();
-				this.storageAccountName = storeName;
-			}
-
-			// Determine URL and verify location of VHD blob to use
-			StorageAccount act = subscription.storageAccounts().get(this.storageAccountName);
-			if(!this.region.equalsIgnoreCase(act.region())) {
-				throw new Exception("Storage account is not in the same region.");
+			// Get the production deployment of an existing cloud service, which depends on nothing else
+			final CompletableFuture<String> existingDeployment = (this.isExistingCloudService)
+				? Async.supply(() -> subscription.computeManagementClient().getDeploymentsOperations()
+					.getBySlot(this.cloudService(), DeploymentSlot.Production).getName(), executor)
+				: CompletableFuture.<String>completedFuture(null);
+			
+			// Create storage account if not specified, once the region is known, then get it
+			final CompletableFuture<StorageAccount> storageAccount = ((this.storageAccountName == null) 
+				? placement 
+				: CompletableFuture.<Void>completedFuture(null))
+				.thenCompose(ignored -> Async.supply(() -> {
+					if(this.storageAccountName == null) {
+						final String storeName = "store" + System.currentTimeMillis();
+						subscription.storageAccounts().define(storeName)
+							.withRegion(this.region)
+							.create();
+						this.storageAccountName = storeName;
+					}
+					return subscription.storageAccounts().get(this.storageAccountName);
+				}, executor));
+			
+			// Verify the storage account is in the region of the VM, once both are known
+			final CompletableFuture<StorageAccount> verifiedStorageAccount = placement
+				.thenCombine(storageAccount, (ignored, account) -> account)
+				.thenCompose(account -> Async.supply(() -> {
+					if(!this.region.equalsIgnoreCase(account.region())) {
+						throw new Exception("Storage account is not in the same region.");
+					}
+					return account;
+				}, executor));
+			
+			// Create a new cloud service using the same name as the VM, only once the storage account is verified 
+			// so that a failed verification does not leave a new cloud service behind
+			final CompletableFuture<Void> newCloudService = (this.isExistingCloudService)
+				? CompletableFuture.<Void>completedFuture(null)
+				: verifiedStorageAccount.thenCompose(ignored -> Async.supply(() -> {
+					if(this.cloudServiceDefinition == null) {
+						CloudService.DefinitionBlank cloudServiceBlank = subscription.cloudServices().define(this.cloudService());
+						this.cloudServiceDefinition = (this.affinityGroup != null) 
+							? cloudServiceBlank.withAffinityGroup(this.affinityGroup) 
+							: cloudServiceBlank.withRegion(this.region);
+					}
+					this.cloudServiceDefinition.create();
+					return null;
+				}, executor));
+			
+			// Let all the prerequisites settle, so that none is still running if one of them failed
+			try {
+				CompletableFuture.allOf(placement, existingDeployment, verifiedStorageAccount, newCloudService).get();
+			} catch(ExecutionException e) {
+				// Thrown below, from the first prerequisite that failed
 			}
+			await(placement);
+			
+			// Determine URL of VHD blob to use
+			StorageAccount act = await(verifiedStorageAccount);
 			String vhdURL = null;
 			for(URI uri : act.endpoints()) {
 				if(uri.toASCIIString().contains(".blob.")) {
@@ -702,8 +971,8 @@ public class VirtualMachinesImpl
 
 			// Determine if to create a new cloud service deployment or add to existing
 			if(this.isExistingCloudService) {
-				// Get existing deployment from production
-				final String deploymentName = subscription.computeManagementClient().getDeploymentsOperations().getBySlot(this.cloudService(), DeploymentSlot.Production).getName();
+				// Existing deployment from production
+				final String deploymentName = await(existingDeployment);
 				
 				// Deploy into existing cloud service
 				final VirtualMachineCreateParameters vmCreateParams = new VirtualMachineCreateParameters();
@@ -715,15 +984,8 @@ public class VirtualMachinesImpl
 				subscription.computeManagementClient().getVirtualMachinesOperations().create(this.cloudService(), deploymentName, vmCreateParams);
 			
 			} else {
-				// Create a new cloud service using the same name as the VM
-				if(this.cloudServiceDefinition == null) {
-					CloudService.DefinitionBlank cloudServiceBlank = subscription.cloudServices().define(this.cloudService());
-					this.cloudServiceDefinition = (this.affinityGroup != null) 
-						? cloudServiceBlank.withAffinityGroup(this.affinityGroup) 
-						: cloudServiceBlank.withRegion(this.region);
-				}
-				
-				this.cloudServiceDefinition.create();
+				// New cloud service using the same name as the VM
+				await(newCloudService);
 				
 				// Prepare role definition
 				this.azureRole.setOSVirtualHardDisk(osDisk);
@@ -749,18 +1011,31 @@ public class VirtualMachinesImpl
 
 		@Override
 		public VirtualMachine refresh() throws Exception {
-			// Read deployment
-			this.azureDeployment =  getDeployment(this.id());
-			this.withDeployment(this.azureDeployment.getName());
-
+			final DeploymentGetResponse deployment = getDeployment(this.id());
+			final CloudService service = subscription.cloudServices().get(this.cloudService());
+			return this.rehydrate(deployment, service);
+		}
+		
+		
+		// Rehydrates the VM from its deployment and cloud service, which may be shared with other VMs of the same deployment,
+		// so the VM keeps its own copies of the deployment fields and of its role, which its setters change
+		private VirtualMachineImpl rehydrate(DeploymentGetResponse deployment, CloudService service) throws Exception {
 			// Read role
-			this.azureRole = getVmRole(this.azureDeployment, this.roleName());
-			this.withRoleName(this.roleName());
+			final String roleName = this.roleName();
+			final Role role = getVmRole(deployment, roleName);
+			if(role == null) {
+				throw new NoSuchElementException(String.format("Virtual machine '%s' not found.", this.id()));
+			}
+			
+			// Read deployment
+			this.azureDeployment = copyDeploymentFields(deployment);
+			this.withDeployment(deployment.getName());
+			this.azureRole = DeepCopy.of(role);
+			this.withRoleName(roleName);
 			//final VirtualMachineGetResponse vmResponse = azure.computeManagementClient().getVirtualMachinesOperations().get(
 			//		this.cloudService(), this.deployment(), this.roleName());
 			
 			// Get service-level data
-			CloudService service = subscription.cloudServices().get(this.cloudService());
 			this.affinityGroup = service.affinityGroup();
 			this.region = service.region();
 			
@@ -774,6 +1049,16 @@ public class VirtualMachinesImpl
 		 * @throws Exception 
 		 *************************************************************/
 		
+		// Helper waiting for a prerequisite, rethrowing the exception it failed with
+		private <T> T await(CompletableFuture<T> future) throws Exception {
+			try {
+				return future.get();
+			} catch(ExecutionException e) {
+				throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+			}
+		}
+		
+		
 		// Helper returning or creating a default OS configuration
 		private ConfigurationSet ensureOSConfigurationSet() {
 			final ArrayList<ConfigurationSet> configSets = this.azureRole.getConfigurationSets();